@@ -0,0 +1,35 @@
+package com.dpd.uk.eta.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Depot definitions under {@code eta.depot-constraints}; depots without an entry use {@code defaults}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "eta.depot-constraints")
+public class DepotConstraintsProperties {
+    
+    private Definition defaults = new Definition();
+    private Map<String, Definition> depots = new HashMap<>();
+    
+    @Data
+    public static class Definition {
+        private double baseMultiplier = 1.0;
+        private int maxCapacity = 200;
+        private int initialLoad = 100; // until the first live load event arrives
+        private double driverAvailability = 0.80;
+        private double vehicleAvailability = 0.85;
+        private int processingTimeMinutes = 20;
+        private double peakMultiplier = 1.2;
+        private double nearCapacityMultiplier = 1.15;
+        private List<String> peakHours = new ArrayList<>(List.of("09:00-11:00", "17:00-19:00"));
+    }
+}
@@ -0,0 +1,20 @@
+package com.dpd.uk.eta.config;
+
+import com.dpd.uk.eta.model.DepotLoadEvent;
+import com.dpd.uk.eta.service.DepotConstraintsService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.Consumer;
+
+@Configuration
+public class DepotLoadStreamConfig {
+    
+    /**
+     * Bound to {@code depotLoad-in-0}.
+     */
+    @Bean
+    public Consumer<DepotLoadEvent> depotLoad(DepotConstraintsService depotConstraintsService) {
+        return depotConstraintsService::applyLoad;
+    }
+}
@@ -0,0 +1,20 @@
+package com.dpd.uk.eta.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executor for ETA factor lookups. Factor sources block on I/O (WebClient, Mongo), so each
+ * lookup gets its own virtual thread instead of a slot in the common ForkJoinPool.
+ */
+@Configuration
+public class EtaExecutorConfig {
+    
+    @Bean(destroyMethod = "close")
+    public ExecutorService etaFactorExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("eta-factor-", 0).factory());
+    }
+}
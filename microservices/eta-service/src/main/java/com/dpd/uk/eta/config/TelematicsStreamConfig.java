@@ -0,0 +1,21 @@
+package com.dpd.uk.eta.config;
+
+import com.dpd.uk.eta.model.TelematicsPing;
+import com.dpd.uk.eta.service.TelematicsIngestService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+@Configuration
+public class TelematicsStreamConfig {
+    
+    /**
+     * Bound to {@code telematics-in-0} in batch mode; each poll arrives as one list.
+     */
+    @Bean
+    public Consumer<List<TelematicsPing>> telematics(TelematicsIngestService telematicsIngestService) {
+        return telematicsIngestService::ingest;
+    }
+}
@@ -2,13 +2,27 @@ package com.dpd.uk.eta.controller;
 
 import com.dpd.uk.common.model.ETA;
 import com.dpd.uk.common.model.Parcel;
+import com.dpd.uk.common.model.Route;
+import com.dpd.uk.eta.history.ETAEvent;
+import com.dpd.uk.eta.model.StopProgress;
 import com.dpd.uk.eta.service.ETACalculationService;
+import com.dpd.uk.eta.service.ETAStreamService;
+import com.dpd.uk.eta.service.RouteETAService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -20,6 +34,9 @@ import java.util.Optional;
 public class ETAController {
     
     private final ETACalculationService etaCalculationService;
+    private final RouteETAService routeETAService;
+    private final ETAStreamService etaStreamService;
+    private final ObjectMapper objectMapper;
     
     @PostMapping("/calculate")
     public ResponseEntity<ETA> calculateETA(@Valid @RequestBody Parcel parcel) {
@@ -34,6 +51,53 @@ public class ETAController {
         }
     }
     
+    @PostMapping("/calculate/bulk")
+    public ResponseEntity<List<ETA>> calculateETAs(@RequestBody List<Parcel> parcels) {
+        log.info("Received bulk ETA calculation request for {} parcels", parcels.size());
+        
+        try {
+            List<ETA> etas = etaCalculationService.calculateETAs(parcels);
+            return ResponseEntity.ok(etas);
+        } catch (Exception e) {
+            log.error("Error calculating bulk ETAs for {} parcels", parcels.size(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    @PostMapping("/route")
+    public ResponseEntity<List<ETA>> calculateRouteETAs(@RequestBody Route route) {
+        log.info("Received route ETA calculation request for route: {}", route.getRouteId());
+        
+        try {
+            List<ETA> etas = routeETAService.calculateRouteETAs(route);
+            return ResponseEntity.ok(etas);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid route ETA request for route: {}: {}", route.getRouteId(), e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error calculating route ETAs for route: {}", route.getRouteId(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    @PutMapping("/route/{routeId}/stops/{sequence}")
+    public ResponseEntity<List<ETA>> updateRouteStop(@PathVariable String routeId,
+                                                     @PathVariable int sequence,
+                                                     @RequestBody StopProgress progress) {
+        log.info("Received stop progress for route: {}, stop: {}", routeId, sequence);
+        
+        try {
+            List<ETA> etas = routeETAService.updateStop(routeId, sequence, progress);
+            return ResponseEntity.ok(etas);
+        } catch (IllegalArgumentException e) {
+            log.warn("Stop progress rejected for route: {}: {}", routeId, e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error updating route ETAs for route: {}", routeId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
     @GetMapping("/{parcelId}")
     public ResponseEntity<ETA> getETA(@PathVariable String parcelId) {
         log.info("Received ETA request for parcel: {}", parcelId);
@@ -51,6 +115,37 @@ public class ETAController {
         return ResponseEntity.ok(etas);
     }
     
+    @GetMapping(value = "/depot/{depotId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamETAsByDepot(@PathVariable String depotId) {
+        log.info("Received streaming ETA request for depot: {}", depotId);
+        
+        ObjectWriter writer = objectMapper.writerFor(ETA.class);
+        StreamingResponseBody body = out -> etaCalculationService.streamETAsByDepot(depotId, eta -> {
+            try {
+                out.write(writer.writeValueAsBytes(eta));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    @GetMapping(value = "/depot/{depotId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeDepot(@PathVariable String depotId) {
+        log.info("Opening ETA event stream for depot: {}", depotId);
+        return etaStreamService.subscribeDepot(depotId);
+    }
+    
+    @GetMapping("/depot/{depotId}/arriving")
+    public ResponseEntity<List<ETA>> getArrivingETAs(@PathVariable String depotId,
+                                                     @RequestParam(defaultValue = "30") int withinMinutes) {
+        log.debug("Received arriving-soon request for depot: {} ({} minutes)", depotId, withinMinutes);
+        
+        List<ETA> etas = etaCalculationService.getArrivingETAs(depotId, withinMinutes);
+        return ResponseEntity.ok(etas);
+    }
+    
     @GetMapping("/driver/{driverId}")
     public ResponseEntity<List<ETA>> getETAsByDriver(@PathVariable String driverId) {
         log.info("Received ETA request for driver: {}", driverId);
@@ -59,6 +154,30 @@ public class ETAController {
         return ResponseEntity.ok(etas);
     }
     
+    @GetMapping(value = "/driver/{driverId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeDriver(@PathVariable String driverId) {
+        log.info("Opening ETA event stream for driver: {}", driverId);
+        return etaStreamService.subscribeDriver(driverId);
+    }
+    
+    @GetMapping("/{parcelId}/history")
+    public ResponseEntity<List<ETAEvent>> getHistory(@PathVariable String parcelId) {
+        log.debug("Received ETA history request for parcel: {}", parcelId);
+        
+        List<ETAEvent> history = etaCalculationService.getHistory(parcelId);
+        return history.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(history);
+    }
+    
+    @PostMapping("/{parcelId}/delivered")
+    public ResponseEntity<Void> markDelivered(@PathVariable String parcelId,
+                                            @RequestParam(required = false)
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime deliveredAt) {
+        log.info("Received delivery confirmation for parcel: {}", parcelId);
+        
+        boolean recorded = etaCalculationService.markDelivered(parcelId, deliveredAt != null ? deliveredAt : LocalDateTime.now());
+        return recorded ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+    
     @PutMapping("/{parcelId}/update")
     public ResponseEntity<Void> updateETA(@PathVariable String parcelId, 
                                         @RequestBody Map<String, Object> updates) {
@@ -67,6 +186,9 @@ public class ETAController {
         try {
             etaCalculationService.updateETA(parcelId, updates);
             return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid ETA update for parcel: {}: {}", parcelId, e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error updating ETA for parcel: {}", parcelId, e);
             return ResponseEntity.internalServerError().build();
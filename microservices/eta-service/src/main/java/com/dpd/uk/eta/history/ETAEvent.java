@@ -0,0 +1,38 @@
+package com.dpd.uk.eta.history;
+
+import com.dpd.uk.common.model.ETA;
+import com.dpd.uk.eta.model.ETACalculation;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry in a parcel's ETA history. Events carry the whole prediction rather than a change to it, so any
+ * event on its own gives the parcel's state at that point and a bucket of events replays independently.
+ *
+ * @param at          when the prediction was made, or when the parcel was delivered
+ * @param predictedAt when the prediction in this event was made; equals {@code at} for estimates
+ */
+public record ETAEvent(Type type, LocalDateTime at, LocalDateTime predictedAt, LocalDateTime arrival,
+                       LocalDateTime arrivalP50, LocalDateTime arrivalP90, ETA.ETAConfidence confidence) {
+
+    // Stored by ordinal: only ever append new values
+    public enum Type {
+        ESTIMATE,
+        DELIVERED
+    }
+
+    static ETAEvent estimate(ETACalculation calculation) {
+        return new ETAEvent(Type.ESTIMATE, calculation.getLastUpdated(), calculation.getLastUpdated(),
+            calculation.getEstimatedArrival(), calculation.getArrivalP50(), calculation.getArrivalP90(),
+            calculation.getConfidence());
+    }
+
+    /**
+     * Delivery, together with the last prediction made before it.
+     */
+    static ETAEvent delivered(ETACalculation calculation, LocalDateTime deliveredAt) {
+        return new ETAEvent(Type.DELIVERED, deliveredAt, calculation.getLastUpdated(),
+            calculation.getEstimatedArrival(), calculation.getArrivalP50(), calculation.getArrivalP90(),
+            calculation.getConfidence());
+    }
+}
@@ -0,0 +1,44 @@
+package com.dpd.uk.eta.history;
+
+import com.dpd.uk.common.model.Parcel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A run of encoded {@link ETAEvent}s for one parcel. Appends go to the parcel's open bucket until it holds
+ * {@code eta.events.per-bucket} events, after which the next append starts a new one.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "eta_events")
+@CompoundIndex(name = "parcel_open", def = "{'parcelId': 1, 'count': 1}")
+public class ETAEventBucket {
+    
+    @Id
+    private String id;
+    
+    private String parcelId;
+    
+    // Lane of the parcel, so analytics can replay buckets without joining eta_calculations
+    private String originPostcode;
+    private String destinationPostcode;
+    private Parcel.ParcelType parcelType;
+    
+    private int count;
+    private LocalDateTime firstAt;
+    @Indexed
+    private LocalDateTime lastAt;
+    
+    private List<byte[]> events;
+}
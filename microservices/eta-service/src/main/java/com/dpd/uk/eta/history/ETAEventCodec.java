@@ -0,0 +1,69 @@
+package com.dpd.uk.eta.history;
+
+import com.dpd.uk.common.model.ETA;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Fixed 27-byte encoding of an {@link ETAEvent}: version, type, event time in epoch millis, then the
+ * prediction as second offsets from the time it was made, and the confidence. Times use the service's
+ * local clock read as UTC, like the arrival index.
+ */
+public final class ETAEventCodec {
+    
+    static final int SIZE = 27;
+    private static final byte VERSION = 1;
+    private static final int ABSENT = Integer.MIN_VALUE;
+    private static final ETAEvent.Type[] TYPES = ETAEvent.Type.values();
+    private static final ETA.ETAConfidence[] CONFIDENCES = ETA.ETAConfidence.values();
+    
+    private ETAEventCodec() {
+    }
+    
+    public static byte[] encode(ETAEvent event) {
+        LocalDateTime predictedAt = event.predictedAt() != null ? event.predictedAt() : event.at();
+        return ByteBuffer.allocate(SIZE)
+            .put(VERSION)
+            .put((byte) event.type().ordinal())
+            .putLong(event.at().toInstant(ZoneOffset.UTC).toEpochMilli())
+            .putInt(offset(predictedAt, event.at()))
+            .putInt(offset(predictedAt, event.arrival()))
+            .putInt(offset(predictedAt, event.arrivalP50()))
+            .putInt(offset(predictedAt, event.arrivalP90()))
+            .put(event.confidence() != null ? (byte) event.confidence().ordinal() : -1)
+            .array();
+    }
+    
+    public static ETAEvent decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte version = buffer.get();
+        if (version != VERSION || bytes.length != SIZE) {
+            throw new IllegalArgumentException("Unsupported ETA event encoding v" + version + " (" + bytes.length + " bytes)");
+        }
+        ETAEvent.Type type = TYPES[buffer.get()];
+        LocalDateTime at = LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong()), ZoneOffset.UTC);
+        int sincePrediction = buffer.getInt();
+        LocalDateTime predictedAt = sincePrediction != ABSENT ? at.minusSeconds(sincePrediction) : at;
+        LocalDateTime arrival = at(predictedAt, buffer.getInt());
+        LocalDateTime arrivalP50 = at(predictedAt, buffer.getInt());
+        LocalDateTime arrivalP90 = at(predictedAt, buffer.getInt());
+        byte confidence = buffer.get();
+        return new ETAEvent(type, at, predictedAt, arrival, arrivalP50, arrivalP90,
+            confidence >= 0 ? CONFIDENCES[confidence] : null);
+    }
+    
+    private static int offset(LocalDateTime from, LocalDateTime to) {
+        if (to == null) {
+            return ABSENT;
+        }
+        return Math.toIntExact(Duration.between(from, to).toSeconds());
+    }
+    
+    private static LocalDateTime at(LocalDateTime from, int offsetSeconds) {
+        return offsetSeconds != ABSENT ? from.plusSeconds(offsetSeconds) : null;
+    }
+}
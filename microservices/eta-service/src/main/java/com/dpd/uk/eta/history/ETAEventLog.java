@@ -0,0 +1,280 @@
+package com.dpd.uk.eta.history;
+
+import com.dpd.uk.common.model.Parcel;
+import com.dpd.uk.eta.model.ETACalculation;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only history of every prediction and delivery per parcel, kept in {@code eta_events} buckets of
+ * compact binary events. Appends are queued and written each flush as {@code $push}es in an unordered bulk
+ * upsert, split at the open bucket's remaining room so no bucket exceeds {@code per-bucket} events.
+ * Estimates are only logged when the prediction moved, on the same rule as ETA notifications. The log is
+ * secondary to the active ETAs, so when the queue is full new estimates are dropped and counted rather
+ * than slowing the writers down; deliveries are always kept. A flush whose outcome is unknown is retried
+ * whole, so identical events are collapsed when read.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ETAEventLog {
+    
+    private static final int PARCELS_PER_BULK = 1000;
+    
+    private final MongoTemplate mongoTemplate;
+    
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    // Last estimate logged per active parcel, to skip recomputations that did not move the prediction
+    private final Map<String, ETAEvent> lastLogged = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    
+    @Value("${eta.events.per-bucket:200}")
+    private int eventsPerBucket;
+    
+    @Value("${eta.events.max-pending:100000}")
+    private int maxPending;
+    
+    @Value("${eta.events.min-change-minutes:5}")
+    private long minChangeMinutes;
+    
+    @Value("${eta.calculation.max-prediction-hours:24}")
+    private long maxPredictionHours;
+    
+    public void recordEstimate(ETACalculation calculation) {
+        if (calculation.getLastUpdated() == null || calculation.getEstimatedArrival() == null) {
+            return;
+        }
+        ETAEvent estimate = ETAEvent.estimate(calculation);
+        ETAEvent previous = lastLogged.get(calculation.getParcelId());
+        if (previous != null && !isSignificantChange(previous, estimate)) {
+            return;
+        }
+        if (append(calculation, estimate)) {
+            lastLogged.put(calculation.getParcelId(), estimate);
+        }
+    }
+    
+    public void recordDelivery(ETACalculation calculation, LocalDateTime deliveredAt) {
+        lastLogged.remove(calculation.getParcelId());
+        append(calculation, ETAEvent.delivered(calculation, deliveredAt));
+    }
+    
+    /**
+     * The parcel's events in time order.
+     */
+    public List<ETAEvent> history(String parcelId) {
+        Query query = Query.query(Criteria.where("parcelId").is(parcelId))
+            .with(Sort.by(Sort.Direction.ASC, "firstAt"));
+        LinkedHashSet<ETAEvent> events = new LinkedHashSet<>();
+        for (ETAEventBucket bucket : mongoTemplate.find(query, ETAEventBucket.class)) {
+            events.addAll(decode(bucket));
+        }
+        // Buckets can overlap slightly when a retried flush lands after newer events
+        return events.stream().sorted(Comparator.comparing(ETAEvent::at)).toList();
+    }
+    
+    /**
+     * Streams every bucket with events since {@code since}, decoded, from a Mongo cursor.
+     */
+    public void replay(LocalDateTime since, BiConsumer<ETAEventBucket, List<ETAEvent>> consumer) {
+        Query query = Query.query(Criteria.where("lastAt").gte(since));
+        query.fields().exclude("_id");
+        try (Stream<ETAEventBucket> buckets = mongoTemplate.stream(query, ETAEventBucket.class)) {
+            buckets.forEach(bucket -> consumer.accept(bucket, decode(bucket)));
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${eta.events.flush-interval-ms:2000}")
+    public void flush() {
+        if (queue.isEmpty()) {
+            return;
+        }
+        
+        flushLock.lock();
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+        
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            log.warn("ETA event log queue full, dropped {} estimates", lost);
+        }
+    }
+    
+    @Scheduled(fixedRate = 3600000) // Run every hour
+    public void evictLogged() {
+        // Parcels that were never delivered stop changing once their arrival is this far past
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(maxPredictionHours);
+        lastLogged.values().removeIf(event -> event.arrival().isBefore(cutoff));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+    
+    private boolean isSignificantChange(ETAEvent previous, ETAEvent current) {
+        if (previous.confidence() != current.confidence()) {
+            return true;
+        }
+        long shiftMinutes = Math.abs(Duration.between(previous.arrival(), current.arrival()).toMinutes());
+        return shiftMinutes >= minChangeMinutes;
+    }
+    
+    private boolean append(ETACalculation calculation, ETAEvent event) {
+        // Deliveries are rare and are what accuracy replays from, so only estimates are shed under load
+        if (queued.incrementAndGet() > maxPending && event.type() != ETAEvent.Type.DELIVERED) {
+            queued.decrementAndGet();
+            dropped.incrementAndGet();
+            return false;
+        }
+        queue.add(new Pending(calculation.getParcelId(),
+            calculation.getOrigin() != null ? calculation.getOrigin().getPostcode() : null,
+            calculation.getDestination() != null ? calculation.getDestination().getPostcode() : null,
+            calculation.getParcelType(), event.at(), ETAEventCodec.encode(event)));
+        return true;
+    }
+    
+    private void drain() {
+        // Group by parcel so each parcel gets one $push per flush, in append order
+        Map<String, List<Pending>> byParcel = new LinkedHashMap<>();
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            queued.decrementAndGet();
+            byParcel.computeIfAbsent(pending.parcelId(), id -> new ArrayList<>()).add(pending);
+        }
+        
+        List<List<Pending>> parcels = new ArrayList<>(byParcel.values());
+        for (int start = 0; start < parcels.size(); start += PARCELS_PER_BULK) {
+            List<List<Pending>> chunk = parcels.subList(start, Math.min(start + PARCELS_PER_BULK, parcels.size()));
+            // One entry per $push, in bulk order, so a failed operation's index finds its events
+            List<List<Pending>> writes = new ArrayList<>(chunk.size());
+            try {
+                Map<String, Integer> openCounts = openCounts(chunk);
+                BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ETAEventBucket.class);
+                for (List<Pending> events : chunk) {
+                    String parcelId = events.get(0).parcelId();
+                    int room = eventsPerBucket - openCounts.getOrDefault(parcelId, eventsPerBucket);
+                    for (List<Pending> slice : split(events, room, eventsPerBucket)) {
+                        bulkOps.upsert(bucketWithRoom(parcelId, slice.size()), appendTo(slice));
+                        writes.add(slice);
+                    }
+                }
+                bulkOps.execute();
+            } catch (BulkOperationException e) {
+                // Unordered, so every other $push was applied; retrying those would duplicate them
+                log.error("Failed {} of {} ETA event writes for {} parcels, retrying next cycle",
+                    e.getErrors().size(), writes.size(), chunk.size(), e);
+                e.getErrors().forEach(error -> writes.get(error.getIndex()).forEach(this::requeue));
+            } catch (Exception e) {
+                log.error("Failed to write ETA events for {} parcels, retrying next cycle", chunk.size(), e);
+                chunk.forEach(events -> events.forEach(this::requeue));
+            }
+        }
+    }
+    
+    private void requeue(Pending pending) {
+        queued.incrementAndGet();
+        queue.add(pending);
+    }
+    
+    /**
+     * Fullest open bucket's event count per parcel; parcels without an open bucket are absent.
+     */
+    private Map<String, Integer> openCounts(List<List<Pending>> chunk) {
+        List<String> parcelIds = chunk.stream().map(events -> events.get(0).parcelId()).toList();
+        Query query = Query.query(Criteria.where("parcelId").in(parcelIds).and("count").lt(eventsPerBucket));
+        query.fields().include("parcelId").include("count");
+        Map<String, Integer> counts = new HashMap<>();
+        for (ETAEventBucket bucket : mongoTemplate.find(query, ETAEventBucket.class)) {
+            counts.merge(bucket.getParcelId(), bucket.getCount(), Math::max);
+        }
+        return counts;
+    }
+    
+    /**
+     * Splits a parcel's events into the open bucket's remaining {@code room}, then runs of at most {@code perBucket}.
+     */
+    static <T> List<List<T>> split(List<T> events, int room, int perBucket) {
+        List<List<T>> slices = new ArrayList<>();
+        int start = Math.max(0, Math.min(room, events.size()));
+        if (start > 0) {
+            slices.add(events.subList(0, start));
+        }
+        for (; start < events.size(); start += perBucket) {
+            slices.add(events.subList(start, Math.min(start + perBucket, events.size())));
+        }
+        return slices;
+    }
+    
+    private Query bucketWithRoom(String parcelId, int events) {
+        // Matches only a bucket these events fit in; otherwise the upsert starts a new one
+        return Query.query(Criteria.where("parcelId").is(parcelId)
+            .and("count").lte(eventsPerBucket - events));
+    }
+    
+    private Update appendTo(List<Pending> events) {
+        Pending latest = events.get(events.size() - 1);
+        return new Update()
+            .push("events").each(events.stream().map(Pending::encoded).toArray())
+            .inc("count", events.size())
+            .min("firstAt", events.stream().map(Pending::at).min(Comparator.naturalOrder()).orElseThrow())
+            .max("lastAt", events.stream().map(Pending::at).max(Comparator.naturalOrder()).orElseThrow())
+            .setOnInsert("originPostcode", latest.originPostcode())
+            .setOnInsert("destinationPostcode", latest.destinationPostcode())
+            .setOnInsert("parcelType", latest.parcelType());
+    }
+    
+    private List<ETAEvent> decode(ETAEventBucket bucket) {
+        if (bucket.getEvents() == null) {
+            return List.of();
+        }
+        // A set, so an append repeated by a retried flush is read once
+        LinkedHashSet<ETAEvent> events = new LinkedHashSet<>(bucket.getEvents().size() * 2);
+        for (byte[] encoded : bucket.getEvents()) {
+            try {
+                events.add(ETAEventCodec.decode(encoded));
+            } catch (Exception e) {
+                log.warn("Skipping undecodable ETA event for parcel: {}", bucket.getParcelId(), e);
+            }
+        }
+        return new ArrayList<>(events);
+    }
+    
+    private record Pending(String parcelId, String originPostcode, String destinationPostcode,
+                           Parcel.ParcelType parcelType, LocalDateTime at, byte[] encoded) {
+    }
+}
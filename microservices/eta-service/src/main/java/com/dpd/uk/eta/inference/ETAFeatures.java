@@ -0,0 +1,72 @@
+package com.dpd.uk.eta.inference;
+
+import com.dpd.uk.eta.model.ETACalculation;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Feature layout for ETA model inference. Models name the features they split on and are mapped onto
+ * these slots at load time; missing values are NaN and follow each split's default direction.
+ */
+public final class ETAFeatures {
+    
+    public static final List<String> NAMES = List.of(
+        "distanceKm",
+        "trafficMultiplier",
+        "trafficIncidents",
+        "historicalAvgMinutes",
+        "historicalSampleSize",
+        "depotMultiplier",
+        "depotUtilization",
+        "depotPeakHour",
+        "vehicleMultiplier",
+        "vehicleSpeedKmh",
+        "hourOfDay",
+        "dayOfWeek",
+        "parcelType"
+    );
+    
+    public static final int COUNT = NAMES.size();
+    
+    private ETAFeatures() {
+    }
+    
+    /**
+     * Writes the calculation's features into {@code row[offset .. offset + COUNT)}.
+     */
+    public static void extract(ETACalculation calculation, LocalDateTime at, double[] row, int offset) {
+        Arrays.fill(row, offset, offset + COUNT, Double.NaN);
+        
+        if (calculation.getDistanceKm() != null) {
+            row[offset] = calculation.getDistanceKm();
+        }
+        if (calculation.getTrafficFactors() != null) {
+            row[offset + 1] = calculation.getTrafficFactors().multiplier();
+            row[offset + 2] = calculation.getTrafficFactors().incidents();
+        }
+        if (calculation.getHistoricalFactors() != null) {
+            if (calculation.getHistoricalFactors().avgMinutes() != null) {
+                row[offset + 3] = calculation.getHistoricalFactors().avgMinutes();
+            }
+            row[offset + 4] = calculation.getHistoricalFactors().sampleSize();
+        }
+        if (calculation.getDepotConstraints() != null) {
+            row[offset + 5] = calculation.getDepotConstraints().multiplier();
+            row[offset + 6] = calculation.getDepotConstraints().capacityUtilization();
+            row[offset + 7] = calculation.getDepotConstraints().peakHour() ? 1 : 0;
+        }
+        if (calculation.getVehicleFactors() != null) {
+            row[offset + 8] = calculation.getVehicleFactors().multiplier();
+            if (calculation.getVehicleFactors().currentSpeedKmh() != null) {
+                row[offset + 9] = calculation.getVehicleFactors().currentSpeedKmh();
+            }
+        }
+        row[offset + 10] = at.getHour();
+        row[offset + 11] = at.getDayOfWeek().getValue();
+        if (calculation.getParcelType() != null) {
+            row[offset + 12] = calculation.getParcelType().ordinal();
+        }
+    }
+}
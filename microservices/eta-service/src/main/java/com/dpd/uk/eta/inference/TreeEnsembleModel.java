@@ -0,0 +1,166 @@
+package com.dpd.uk.eta.inference;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Gradient-boosted tree ensemble predicting ETA minutes. All trees are flattened into shared parallel
+ * arrays so a walk touches a few contiguous primitives per level instead of chasing node objects.
+ */
+public final class TreeEnsembleModel {
+    
+    private static final int LEAF = -1;
+    
+    private final String version;
+    private final double baseScore;
+    private final int[] roots;
+    private final int[] feature; // slot in ETAFeatures, or LEAF
+    private final double[] threshold;
+    private final int[] left;
+    private final int[] right;
+    private final boolean[] missingLeft;
+    private final double[] value;
+    
+    private TreeEnsembleModel(String version, double baseScore, int[] roots, int[] feature, double[] threshold,
+                              int[] left, int[] right, boolean[] missingLeft, double[] value) {
+        this.version = version;
+        this.baseScore = baseScore;
+        this.roots = roots;
+        this.feature = feature;
+        this.threshold = threshold;
+        this.left = left;
+        this.right = right;
+        this.missingLeft = missingLeft;
+        this.value = value;
+    }
+    
+    public String version() {
+        return version;
+    }
+    
+    public int treeCount() {
+        return roots.length;
+    }
+    
+    /**
+     * Scores one row of {@link ETAFeatures#COUNT} features starting at {@code offset}.
+     */
+    public double score(double[] features, int offset) {
+        double score = baseScore;
+        for (int root : roots) {
+            score += walk(root, features, offset);
+        }
+        return score;
+    }
+    
+    /**
+     * Scores {@code rows} consecutive feature rows into {@code out}. Trees are the outer loop so each tree
+     * stays in cache while every row walks it.
+     */
+    public void scoreBatch(double[] features, int rows, double[] out) {
+        Arrays.fill(out, 0, rows, baseScore);
+        for (int root : roots) {
+            for (int row = 0; row < rows; row++) {
+                out[row] += walk(root, features, row * ETAFeatures.COUNT);
+            }
+        }
+    }
+    
+    private double walk(int node, double[] features, int offset) {
+        while (feature[node] != LEAF) {
+            double x = features[offset + feature[node]];
+            boolean goLeft = Double.isNaN(x) ? missingLeft[node] : x < threshold[node];
+            node = goLeft ? left[node] : right[node];
+        }
+        return value[node];
+    }
+    
+    /**
+     * Flattens a parsed model file. Child indices in each tree are local to that tree and must point
+     * forward, which rules out cycles.
+     */
+    public static TreeEnsembleModel fromSpec(ModelSpec spec) {
+        if (spec.version() == null || spec.features() == null || spec.trees() == null || spec.trees().isEmpty()) {
+            throw new IllegalArgumentException("Model needs a version, features and at least one tree");
+        }
+        int[] slots = new int[spec.features().size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = ETAFeatures.NAMES.indexOf(spec.features().get(i));
+            if (slots[i] < 0) {
+                throw new IllegalArgumentException("Unknown feature in model " + spec.version() + ": " + spec.features().get(i));
+            }
+        }
+        
+        for (int t = 0; t < spec.trees().size(); t++) {
+            validate(spec.trees().get(t), t, slots.length);
+        }
+        
+        int total = spec.trees().stream().mapToInt(tree -> tree.feature().length).sum();
+        int[] roots = new int[spec.trees().size()];
+        int[] feature = new int[total];
+        double[] threshold = new double[total];
+        int[] left = new int[total];
+        int[] right = new int[total];
+        boolean[] missingLeft = new boolean[total];
+        double[] value = new double[total];
+        
+        int base = 0;
+        for (int t = 0; t < roots.length; t++) {
+            TreeSpec tree = spec.trees().get(t);
+            int size = tree.feature().length;
+            roots[t] = base;
+            for (int i = 0; i < size; i++) {
+                int n = base + i;
+                if (tree.feature()[i] < 0) {
+                    feature[n] = LEAF;
+                    value[n] = tree.value()[i];
+                    continue;
+                }
+                if (tree.left()[i] <= i || tree.right()[i] <= i || tree.left()[i] >= size || tree.right()[i] >= size) {
+                    throw new IllegalArgumentException("Invalid children at node " + i + " of tree " + t);
+                }
+                feature[n] = slots[tree.feature()[i]];
+                threshold[n] = tree.threshold()[i];
+                left[n] = base + tree.left()[i];
+                right[n] = base + tree.right()[i];
+                missingLeft[n] = tree.missingLeft() != null && tree.missingLeft()[i];
+            }
+            base += size;
+        }
+        
+        return new TreeEnsembleModel(spec.version(), spec.baseScore(), roots, feature, threshold, left, right,
+            missingLeft, value);
+    }
+    
+    private static void validate(TreeSpec tree, int t, int featureCount) {
+        if (tree == null || tree.feature() == null || tree.feature().length == 0) {
+            throw new IllegalArgumentException("Tree " + t + " has no nodes");
+        }
+        int size = tree.feature().length;
+        boolean sized = tree.threshold() != null && tree.threshold().length == size
+            && tree.left() != null && tree.left().length == size
+            && tree.right() != null && tree.right().length == size
+            && tree.value() != null && tree.value().length == size
+            && (tree.missingLeft() == null || tree.missingLeft().length == size);
+        if (!sized) {
+            throw new IllegalArgumentException("Node arrays of tree " + t + " do not all have " + size + " entries");
+        }
+        for (int i = 0; i < size; i++) {
+            if (tree.feature()[i] >= featureCount) {
+                throw new IllegalArgumentException("Feature index " + tree.feature()[i] + " at node " + i + " of tree "
+                    + t + " is beyond the model's " + featureCount + " features");
+            }
+        }
+    }
+    
+    /**
+     * On-disk model: {@code features} names the columns the trees' {@code feature} indices refer to;
+     * a negative feature index marks a leaf.
+     */
+    public record ModelSpec(String version, double baseScore, List<String> features, List<TreeSpec> trees) {
+    }
+    
+    public record TreeSpec(int[] feature, double[] threshold, int[] left, int[] right, boolean[] missingLeft,
+                           double[] value) {
+    }
+}
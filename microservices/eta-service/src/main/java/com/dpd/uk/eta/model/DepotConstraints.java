@@ -0,0 +1,20 @@
+package com.dpd.uk.eta.model;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Capacity and peak-hour state of the parcel's depot.
+ */
+public record DepotConstraints(
+    @Field("m") double multiplier,
+    @Field("cap") int maxCapacity,
+    @Field("load") int currentLoad,
+    @Field("u") double capacityUtilization,
+    @Field("da") double driverAvailability,
+    @Field("va") double vehicleAvailability,
+    @Field("pm") int processingTimeMinutes,
+    @Field("peak") boolean peakHour,
+    @Field("t") long lastUpdated,
+    @Field("f") boolean fallback
+) implements ETAFactor {
+}
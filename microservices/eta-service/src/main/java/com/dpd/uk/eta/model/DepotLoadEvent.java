@@ -0,0 +1,21 @@
+package com.dpd.uk.eta.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Current parcel load reported by a depot's sortation system.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DepotLoadEvent {
+    
+    private String depotId;
+    private int currentLoad;
+    private Integer maxCapacity; // only when the depot's capacity has changed
+    private long timestamp; // epoch millis
+}
@@ -2,21 +2,32 @@ package com.dpd.uk.eta.model;
 
 import com.dpd.uk.common.model.Address;
 import com.dpd.uk.common.model.ETA;
+import com.dpd.uk.common.model.Parcel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDateTime;
-import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "eta_calculations")
+@CompoundIndexes({
+    @CompoundIndex(name = "parcel_active", def = "{'parcelId': 1, 'isActive': 1}"),
+    @CompoundIndex(name = "depot_active_arrival", def = "{'depotId': 1, 'isActive': 1, 'estimatedArrival': 1}"),
+    @CompoundIndex(name = "driver_active", def = "{'driverId': 1, 'isActive': 1}"),
+    @CompoundIndex(name = "vehicle_active", def = "{'vehicleId': 1, 'isActive': 1}"),
+    @CompoundIndex(name = "active_arrival", def = "{'isActive': 1, 'estimatedArrival': 1}")
+})
 public class ETACalculation {
     
     @Id
@@ -31,17 +42,27 @@ public class ETACalculation {
     private Address origin;
     private Address destination;
     private Address currentLocation;
+    private Parcel.ParcelType parcelType;
     
     private ETA.ETAConfidence confidence;
     private LocalDateTime estimatedArrival;
+    private LocalDateTime arrivalP50;
+    private LocalDateTime arrivalP90;
     private Integer estimatedMinutes;
     private Double distanceKm;
     
-    private Map<String, Object> trafficFactors;
-    private Map<String, Object> historicalFactors;
-    private Map<String, Object> depotConstraints;
-    private Map<String, Object> vehicleFactors;
+    // Short field names keep the embedded factors small; documents written before the typed factors
+    // used the long names and simply read back without factors
+    @Field("tf")
+    private TrafficFactors trafficFactors;
+    @Field("hf")
+    private HistoricalFactors historicalFactors;
+    @Field("dc")
+    private DepotConstraints depotConstraints;
+    @Field("vf")
+    private VehicleFactors vehicleFactors;
     
+    @Indexed
     private LocalDateTime calculatedAt;
     private LocalDateTime lastUpdated;
     private String calculationVersion;
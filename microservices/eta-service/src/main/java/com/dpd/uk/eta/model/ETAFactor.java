@@ -0,0 +1,18 @@
+package com.dpd.uk.eta.model;
+
+/**
+ * One source of adjustment to the base travel time.
+ */
+public sealed interface ETAFactor permits TrafficFactors, HistoricalFactors, DepotConstraints, VehicleFactors {
+    
+    double multiplier();
+    
+    /**
+     * True when the source was unavailable and defaults were substituted.
+     */
+    boolean fallback();
+    
+    static double multiplierOf(ETAFactor factor) {
+        return factor != null ? factor.multiplier() : 1.0;
+    }
+}
@@ -0,0 +1,22 @@
+package com.dpd.uk.eta.model;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Delivery-time statistics for the parcel's lane over the rollup window.
+ */
+public record HistoricalFactors(
+    @Field("m") double multiplier,
+    @Field("a") Double avgMinutes,
+    @Field("lo") Double minMinutes,
+    @Field("hi") Double maxMinutes,
+    @Field("n") long sampleSize,
+    @Field("c") String confidence,
+    @Field("t") long lastUpdated,
+    @Field("f") boolean fallback
+) implements ETAFactor {
+    
+    public static HistoricalFactors noHistory(boolean fallback) {
+        return new HistoricalFactors(1.0, null, null, null, 0, "LOW", System.currentTimeMillis(), fallback);
+    }
+}
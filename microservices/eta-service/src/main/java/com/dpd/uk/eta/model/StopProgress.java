@@ -0,0 +1,25 @@
+package com.dpd.uk.eta.model;
+
+import com.dpd.uk.common.model.Route;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress reported for one stop of a route; stops after it are re-projected from this point.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StopProgress {
+    
+    private Route.RouteStop.StopStatus status;
+    
+    // Minutes after route start the driver actually arrived
+    private Integer actualArrivalMinutes;
+    
+    // Extra delay at this stop (e.g. waiting for access)
+    private Integer delayMinutes;
+}
@@ -0,0 +1,27 @@
+package com.dpd.uk.eta.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * GPS ping from the telematics feed. Primitive fields keep the hot ingest path free of boxing.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TelematicsPing {
+    
+    private String vehicleId;
+    private double latitude;
+    private double longitude;
+    
+    // Reported ground speed; NaN when the unit does not send one
+    @Builder.Default
+    private double speedKmh = Double.NaN;
+    
+    private double heading;
+    private long timestamp; // epoch millis
+}
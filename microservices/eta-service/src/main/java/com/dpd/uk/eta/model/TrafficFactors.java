@@ -0,0 +1,20 @@
+package com.dpd.uk.eta.model;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Traffic conditions between the origin and destination cells. Persisted under short field names
+ * because every calculation document carries a copy.
+ */
+public record TrafficFactors(
+    @Field("m") double multiplier,
+    @Field("c") String congestionLevel,
+    @Field("i") int incidents,
+    @Field("t") long lastUpdated,
+    @Field("f") boolean fallback
+) implements ETAFactor {
+    
+    public static TrafficFactors fallbackFactors() {
+        return new TrafficFactors(1.0, "UNKNOWN", 0, System.currentTimeMillis(), true);
+    }
+}
@@ -0,0 +1,22 @@
+package com.dpd.uk.eta.model;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Vehicle profile, overlaid with live telematics when the vehicle is reporting.
+ */
+public record VehicleFactors(
+    @Field("m") double multiplier,
+    @Field("type") String vehicleType,
+    @Field("vmax") int maxSpeed,
+    @Field("rel") double reliability,
+    @Field("mo") boolean maintenanceOverdue,
+    @Field("live") boolean live,
+    @Field("lat") Double currentLatitude,
+    @Field("lon") Double currentLongitude,
+    @Field("spd") Double currentSpeedKmh,
+    @Field("pt") Long positionTimestamp,
+    @Field("t") long lastUpdated,
+    @Field("f") boolean fallback
+) implements ETAFactor {
+}
@@ -1,6 +1,7 @@
 package com.dpd.uk.eta.repository;
 
 import com.dpd.uk.eta.model.ETACalculation;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -8,14 +9,19 @@ import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ETACalculationRepository extends MongoRepository<ETACalculation, String> {
+public interface ETACalculationRepository extends MongoRepository<ETACalculation, String>, ETACalculationRepositoryCustom {
     
     Optional<ETACalculation> findByParcelIdAndIsActiveTrue(String parcelId);
     
     List<ETACalculation> findByDepotIdAndIsActiveTrue(String depotId);
     
+    // Cursor-backed; callers must close the stream
+    @Meta(cursorBatchSize = 500)
+    Stream<ETACalculation> streamByDepotIdAndIsActiveTrue(String depotId);
+    
     List<ETACalculation> findByDriverIdAndIsActiveTrue(String driverId);
     
     List<ETACalculation> findByVehicleIdAndIsActiveTrue(String vehicleId);
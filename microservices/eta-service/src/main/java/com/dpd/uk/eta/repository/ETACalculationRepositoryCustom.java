@@ -0,0 +1,13 @@
+package com.dpd.uk.eta.repository;
+
+import com.dpd.uk.eta.model.ETACalculation;
+
+import java.util.List;
+
+public interface ETACalculationRepositoryCustom {
+    
+    /**
+     * Inserts or replaces the calculations in one unordered bulk write, assigning ids to new ones.
+     */
+    void upsertAll(List<ETACalculation> calculations);
+}
@@ -0,0 +1,36 @@
+package com.dpd.uk.eta.repository;
+
+import com.dpd.uk.eta.model.ETACalculation;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class ETACalculationRepositoryImpl implements ETACalculationRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public void upsertAll(List<ETACalculation> calculations) {
+        if (calculations.isEmpty()) {
+            return;
+        }
+        
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ETACalculation.class);
+        for (ETACalculation calculation : calculations) {
+            // Client-side ids let new and existing documents share the same replace-by-id upsert
+            if (calculation.getId() == null) {
+                calculation.setId(new ObjectId().toHexString());
+            }
+            bulkOps.replaceOne(Query.query(Criteria.where("_id").is(calculation.getId())),
+                calculation, FindAndReplaceOptions.options().upsert());
+        }
+        bulkOps.execute();
+    }
+}
@@ -0,0 +1,36 @@
+package com.dpd.uk.eta.service;
+
+import com.dpd.uk.eta.model.ETACalculation;
+import com.dpd.uk.eta.store.ArrivalIndex;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.stereotype.Service;
+
+/**
+ * Publishes parcels whose arrival comes within the "arriving soon" window, for the driver-nearby SMS.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArrivingSoonNotifier {
+    
+    private final ArrivalIndex arrivalIndex;
+    private final ETACalculationService etaCalculationService;
+    private final StreamBridge streamBridge;
+    
+    @Value("${eta.arrival.soon-window-minutes:10}")
+    private int soonWindowMinutes;
+    
+    @PostConstruct
+    void subscribe() {
+        arrivalIndex.subscribe("arriving-soon", soonWindowMinutes, this::publish);
+    }
+    
+    private void publish(ETACalculation calculation) {
+        log.debug("Parcel {} arriving within {} minutes", calculation.getParcelId(), soonWindowMinutes);
+        streamBridge.send("eta-arriving-soon-out", etaCalculationService.convertToETA(calculation));
+    }
+}
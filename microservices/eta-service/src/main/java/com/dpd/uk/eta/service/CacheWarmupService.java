@@ -0,0 +1,137 @@
+package com.dpd.uk.eta.service;
+
+import com.dpd.uk.eta.config.DepotConstraintsProperties;
+import com.dpd.uk.eta.model.ETACalculation;
+import com.dpd.uk.eta.store.ActiveETAStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fills the in-process caches before the service reports ready, so a fresh instance does not send its
+ * first minutes of traffic straight to Mongo and the traffic provider. Runs as an application runner,
+ * which Spring Boot completes before switching readiness to accepting traffic; anything still loading
+ * when the time cap passes carries on in the background.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CacheWarmupService implements ApplicationRunner {
+    
+    private final DepotConstraintsProperties depotConstraintsProperties;
+    private final ActiveETAStore activeETAStore;
+    private final HistoricalRollupService historicalRollupService;
+    private final TrafficDataService trafficDataService;
+    private final DeliveryAccuracyService deliveryAccuracyService;
+    private final ExecutorService etaFactorExecutor;
+    
+    @Value("${eta.warmup.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${eta.warmup.timeout-seconds:60}")
+    private long timeoutSeconds;
+    
+    @Value("${eta.warmup.traffic-lanes:200}")
+    private int trafficLanes;
+    
+    @Value("${eta.accuracy.replay-days:30}")
+    private long accuracyReplayDays;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        
+        long started = System.currentTimeMillis();
+        List<String> depotIds = List.copyOf(depotConstraintsProperties.getDepots().keySet());
+        
+        CompletableFuture<Void> rollups = step("historical rollups", historicalRollupService::refresh);
+        CompletableFuture<Void> accuracy = step("delivery accuracy",
+            () -> deliveryAccuracyService.replayDeliveries(LocalDateTime.now().minusDays(accuracyReplayDays)));
+        CompletableFuture<Void> active = CompletableFuture.allOf(depotIds.stream()
+                .map(depotId -> step("depot " + depotId, () -> activeETAStore.loadDepot(depotId)))
+                .toArray(CompletableFuture[]::new))
+            .thenCompose(loaded -> warmFromActive(depotIds));
+        
+        try {
+            CompletableFuture.allOf(rollups, accuracy, active).get(timeoutSeconds, TimeUnit.SECONDS);
+            log.info("Warm-up finished in {} ms: {} active ETAs across {} depots",
+                System.currentTimeMillis() - started, activeETAStore.size(), depotIds.size());
+        } catch (TimeoutException e) {
+            log.warn("Warm-up still running after {} s, continuing startup", timeoutSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Warm-up failed, caches will fill on demand", e.getCause());
+        }
+    }
+    
+    /**
+     * Vehicle lookups and traffic for the busiest cell pairs among the depots' active ETAs.
+     */
+    private CompletableFuture<Void> warmFromActive(List<String> depotIds) {
+        List<ETACalculation> calculations = depotIds.stream()
+            .flatMap(depotId -> activeETAStore.getByDepot(depotId).stream())
+            .toList();
+        
+        // Resolving each vehicle once here saves the telematics path a Mongo query per vehicle later
+        CompletableFuture<?>[] vehicles = calculations.stream()
+            .map(ETACalculation::getVehicleId)
+            .filter(Objects::nonNull)
+            .distinct()
+            .map(vehicleId -> step("vehicle " + vehicleId, () -> activeETAStore.getByVehicle(vehicleId)))
+            .toArray(CompletableFuture[]::new);
+        
+        Map<String, Lane> lanes = new HashMap<>();
+        for (ETACalculation calculation : calculations) {
+            if (calculation.getOrigin() != null && calculation.getDestination() != null) {
+                lanes.computeIfAbsent(trafficDataService.cellKey(calculation.getOrigin(), calculation.getDestination()),
+                    key -> new Lane(calculation)).count++;
+            }
+        }
+        CompletableFuture<?>[] traffic = lanes.values().stream()
+            .sorted(Comparator.comparingInt((Lane lane) -> lane.count).reversed())
+            .limit(trafficLanes)
+            .map(lane -> trafficDataService.prefetch(lane.sample.getOrigin(), lane.sample.getDestination()))
+            .toArray(CompletableFuture[]::new);
+        
+        log.debug("Warming {} vehicles and {} of {} traffic lanes", vehicles.length, traffic.length, lanes.size());
+        return CompletableFuture.allOf(CompletableFuture.allOf(vehicles), CompletableFuture.allOf(traffic));
+    }
+    
+    private CompletableFuture<Void> step(String name, Runnable task) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                // One failed step shouldn't hold back the rest of the warm-up
+                log.warn("Warm-up step failed: {}", name, e);
+            }
+        }, etaFactorExecutor);
+    }
+    
+    private static final class Lane {
+        private final ETACalculation sample;
+        private int count;
+        
+        Lane(ETACalculation sample) {
+            this.sample = sample;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.dpd.uk.eta.service;
+
+import com.dpd.uk.common.model.ETA;
+import com.dpd.uk.common.model.Parcel;
+import com.dpd.uk.eta.history.ETAEvent;
+import com.dpd.uk.eta.history.ETAEventLog;
+import com.dpd.uk.eta.model.ETACalculation;
+import com.dpd.uk.eta.sketch.RatioSketch;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how actual delivery durations compare with predictions, per postcode-district lane and parcel type,
+ * and turns that into p50/p90 arrival windows.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeliveryAccuracyService {
+    
+    private static final double MIN_PREDICTED_MINUTES = 5.0; // shorter predictions give unstable ratios
+    
+    private final ETAEventLog etaEventLog;
+    
+    private final Map<String, RatioSketch> lanes = new ConcurrentHashMap<>();
+    private final RatioSketch overall = new RatioSketch();
+    
+    @Value("${eta.accuracy.min-samples:20}")
+    private long minSamples;
+    
+    /**
+     * Records the outcome of the calculation's latest prediction.
+     */
+    public void recordDelivery(ETACalculation calculation, LocalDateTime deliveredAt) {
+        if (record(laneKey(calculation), calculation.getLastUpdated(), calculation.getEstimatedArrival(), deliveredAt)) {
+            log.debug("Recorded delivery for parcel: {}", calculation.getParcelId());
+        }
+    }
+    
+    /**
+     * Rebuilds the sketches from deliveries in the ETA event log since {@code since}, e.g. after a restart.
+     *
+     * @return number of deliveries recorded
+     */
+    public long replayDeliveries(LocalDateTime since) {
+        AtomicLong recorded = new AtomicLong();
+        etaEventLog.replay(since, (bucket, events) -> {
+            String lane = laneKey(bucket.getOriginPostcode(), bucket.getDestinationPostcode(), bucket.getParcelType());
+            for (ETAEvent event : events) {
+                if (event.type() == ETAEvent.Type.DELIVERED && !event.at().isBefore(since)
+                        && record(lane, event.predictedAt(), event.arrival(), event.at())) {
+                    recorded.incrementAndGet();
+                }
+            }
+        });
+        log.info("Replayed {} deliveries since {} into {} lanes", recorded.get(), since, lanes.size());
+        return recorded.get();
+    }
+    
+    private boolean record(String lane, LocalDateTime predictedAt, LocalDateTime predictedArrival, LocalDateTime deliveredAt) {
+        if (predictedAt == null || predictedArrival == null) {
+            return false;
+        }
+        double predicted = minutesBetween(predictedAt, predictedArrival);
+        double actual = minutesBetween(predictedAt, deliveredAt);
+        if (predicted < MIN_PREDICTED_MINUTES || actual <= 0) {
+            return false;
+        }
+        
+        double ratio = actual / predicted;
+        lanes.computeIfAbsent(lane, key -> new RatioSketch()).add(ratio);
+        overall.add(ratio);
+        return true;
+    }
+    
+    /**
+     * Arrival window for the calculation's lane, falling back to all lanes while the lane is sparse.
+     */
+    public Optional<ArrivalWindow> window(ETACalculation calculation) {
+        RatioSketch lane = lanes.get(laneKey(calculation));
+        RatioSketch sketch = lane != null && lane.count() >= minSamples ? lane : overall;
+        if (sketch.count() < minSamples) {
+            return Optional.empty();
+        }
+        return Optional.of(new ArrivalWindow(sketch.quantile(0.5), sketch.quantile(0.9)));
+    }
+    
+    private String laneKey(ETACalculation calculation) {
+        String origin = calculation.getOrigin() != null ? calculation.getOrigin().getPostcode() : null;
+        String destination = calculation.getDestination() != null ? calculation.getDestination().getPostcode() : null;
+        return laneKey(origin, destination, calculation.getParcelType());
+    }
+    
+    private String laneKey(String originPostcode, String destinationPostcode, Parcel.ParcelType type) {
+        return HistoricalRollupService.district(originPostcode) + ">" + HistoricalRollupService.district(destinationPostcode) + "|" + type;
+    }
+    
+    private double minutesBetween(LocalDateTime from, LocalDateTime to) {
+        return Duration.between(from, to).toSeconds() / 60.0;
+    }
+    
+    /**
+     * Ratios of actual to predicted duration at the median and 90th percentile.
+     */
+    public record ArrivalWindow(double p50Ratio, double p90Ratio) {
+        
+        public ETA.ETAConfidence confidence() {
+            // Narrow p50-p90 spread means the lane delivers close to prediction
+            double spread = (p90Ratio - p50Ratio) / p50Ratio;
+            if (spread < 0.1) return ETA.ETAConfidence.HIGH;
+            if (spread < 0.25) return ETA.ETAConfidence.MEDIUM;
+            if (spread < 0.5) return ETA.ETAConfidence.LOW;
+            return ETA.ETAConfidence.VERY_LOW;
+        }
+    }
+}
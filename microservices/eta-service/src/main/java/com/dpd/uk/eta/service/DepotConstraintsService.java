@@ -1,133 +1,151 @@
 package com.dpd.uk.eta.service;
 
+import com.dpd.uk.eta.config.DepotConstraintsProperties;
+import com.dpd.uk.eta.model.DepotConstraints;
+import com.dpd.uk.eta.model.DepotLoadEvent;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Depot constraints from per-minute multiplier tables compiled once from configuration, combined with
+ * the live load feed. The current {@link DepotConstraints} for each depot is rebuilt when the minute
+ * ticks over or a load event arrives, so lookups are a map read.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class DepotConstraintsService {
     
-    @Cacheable(value = "depot-constraints", key = "#depotId")
-    public Map<String, Object> getDepotConstraints(String depotId) {
-        try {
-            log.debug("Fetching depot constraints for depot: {}", depotId);
-            
-            // In a real implementation, this would query depot management systems
-            // For now, returning mock data based on depot characteristics
-            return createDepotConstraints(depotId);
-            
-        } catch (Exception e) {
-            log.warn("Failed to fetch depot constraints for depot: {}", depotId, e);
-            return createFallbackDepotConstraints();
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final double NEAR_CAPACITY_UTILIZATION = 0.9;
+    
+    private final DepotConstraintsProperties properties;
+    
+    private final Map<String, DepotTable> tables = new ConcurrentHashMap<>();
+    private volatile DepotTable defaults;
+    private volatile int minuteOfDay;
+    
+    @PostConstruct
+    void compile() {
+        minuteOfDay = currentMinuteOfDay();
+        defaults = new DepotTable(properties.getDefaults());
+        Map<String, DepotTable> compiled = new HashMap<>();
+        properties.getDepots().forEach((depotId, definition) -> compiled.put(depotId, new DepotTable(definition)));
+        tables.putAll(compiled);
+        log.info("Compiled constraint tables for {} depots", compiled.size());
+    }
+    
+    public DepotConstraints getDepotConstraints(String depotId) {
+        return table(depotId).current;
+    }
+    
+    public void applyLoad(DepotLoadEvent event) {
+        if (event.getDepotId() == null) {
+            return;
         }
+        // Depots only known from the feed start from the default calendar
+        DepotTable table = tables.computeIfAbsent(event.getDepotId(), id -> new DepotTable(properties.getDefaults()));
+        table.applyLoad(event, minuteOfDay);
+        log.debug("Depot {} load now {}/{}", event.getDepotId(), table.currentLoad, table.maxCapacity);
+    }
+    
+    @Scheduled(cron = "0 * * * * *")
+    public void tick() {
+        int minute = currentMinuteOfDay();
+        minuteOfDay = minute;
+        defaults.rebuild(minute);
+        tables.values().forEach(table -> table.rebuild(minute));
+    }
+    
+    private DepotTable table(String depotId) {
+        DepotTable table = depotId != null ? tables.get(depotId) : null;
+        return table != null ? table : defaults;
+    }
+    
+    private int currentMinuteOfDay() {
+        return LocalTime.now().toSecondOfDay() / 60;
     }
     
-    private Map<String, Object> createDepotConstraints(String depotId) {
-        Map<String, Object> constraints = new HashMap<>();
+    /**
+     * Parses "HH:MM-HH:MM"; a range ending before it starts wraps past midnight.
+     */
+    private static void markPeak(boolean[] peak, String range) {
+        String[] bounds = range.trim().split("-");
+        int start = LocalTime.parse(bounds[0].trim()).toSecondOfDay() / 60;
+        int end = LocalTime.parse(bounds[1].trim()).toSecondOfDay() / 60;
+        for (int minute = start; minute != end; minute = (minute + 1) % MINUTES_PER_DAY) {
+            peak[minute] = true;
+        }
+    }
+    
+    private final class DepotTable {
+        final ReentrantLock lock = new ReentrantLock();
+        final DepotConstraintsProperties.Definition definition;
+        final double[] multipliers = new double[MINUTES_PER_DAY];
+        final boolean[] peak = new boolean[MINUTES_PER_DAY];
+        volatile int currentLoad;
+        volatile int maxCapacity;
+        volatile long loadTimestamp;
+        volatile DepotConstraints current;
         
-        // Mock depot-specific constraints
-        switch (depotId) {
-            case "LONDON_DEPOT" -> {
-                constraints.put("multiplier", 1.1); // 10% delay due to urban constraints
-                constraints.put("maxCapacity", 500);
-                constraints.put("currentLoad", 350);
-                constraints.put("driverAvailability", 0.85);
-                constraints.put("vehicleAvailability", 0.90);
-                constraints.put("processingTimeMinutes", 15);
-                constraints.put("peakHours", new String[]{"08:00-10:00", "17:00-19:00"});
-            }
-            case "MANCHESTER_DEPOT" -> {
-                constraints.put("multiplier", 1.05); // 5% delay
-                constraints.put("maxCapacity", 300);
-                constraints.put("currentLoad", 200);
-                constraints.put("driverAvailability", 0.95);
-                constraints.put("vehicleAvailability", 0.95);
-                constraints.put("processingTimeMinutes", 10);
-                constraints.put("peakHours", new String[]{"09:00-11:00", "16:00-18:00"});
-            }
-            case "BIRMINGHAM_DEPOT" -> {
-                constraints.put("multiplier", 1.0); // No additional delay
-                constraints.put("maxCapacity", 400);
-                constraints.put("currentLoad", 250);
-                constraints.put("driverAvailability", 0.90);
-                constraints.put("vehicleAvailability", 0.88);
-                constraints.put("processingTimeMinutes", 12);
-                constraints.put("peakHours", new String[]{"08:30-10:30", "17:30-19:30"});
+        DepotTable(DepotConstraintsProperties.Definition definition) {
+            this.definition = definition;
+            this.currentLoad = definition.getInitialLoad();
+            this.maxCapacity = definition.getMaxCapacity();
+            
+            for (String range : definition.getPeakHours()) {
+                markPeak(peak, range);
             }
-            default -> {
-                constraints.put("multiplier", 1.0);
-                constraints.put("maxCapacity", 200);
-                constraints.put("currentLoad", 100);
-                constraints.put("driverAvailability", 0.80);
-                constraints.put("vehicleAvailability", 0.85);
-                constraints.put("processingTimeMinutes", 20);
-                constraints.put("peakHours", new String[]{"09:00-11:00", "17:00-19:00"});
+            for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+                multipliers[minute] = definition.getBaseMultiplier() * (peak[minute] ? definition.getPeakMultiplier() : 1.0);
             }
+            rebuild(minuteOfDay);
         }
         
-        // Add time-based constraints
-        LocalDateTime now = LocalDateTime.now();
-        int hour = now.getHour();
-        
-        // Check if current time is in peak hours
-        boolean isPeakHour = isInPeakHours(hour, (String[]) constraints.get("peakHours"));
-        if (isPeakHour) {
-            double currentMultiplier = (Double) constraints.get("multiplier");
-            constraints.put("multiplier", currentMultiplier * 1.2); // 20% additional delay during peak hours
-            constraints.put("isPeakHour", true);
-        } else {
-            constraints.put("isPeakHour", false);
+        void applyLoad(DepotLoadEvent event, int minute) {
+            lock.lock();
+            try {
+                // Events can be redelivered or arrive out of order; keep the newest
+                if (event.getTimestamp() < loadTimestamp) {
+                    return;
+                }
+                loadTimestamp = event.getTimestamp();
+                currentLoad = event.getCurrentLoad();
+                if (event.getMaxCapacity() != null && event.getMaxCapacity() > 0) {
+                    maxCapacity = event.getMaxCapacity();
+                }
+                rebuild(minute);
+            } finally {
+                lock.unlock();
+            }
         }
         
-        // Calculate capacity utilization
-        int maxCapacity = (Integer) constraints.get("maxCapacity");
-        int currentLoad = (Integer) constraints.get("currentLoad");
-        double utilization = (double) currentLoad / maxCapacity;
-        constraints.put("capacityUtilization", utilization);
+        double utilization() {
+            return maxCapacity > 0 ? (double) currentLoad / maxCapacity : 0;
+        }
         
-        // Adjust multiplier based on capacity utilization
-        if (utilization > 0.9) {
-            double currentMultiplier = (Double) constraints.get("multiplier");
-            constraints.put("multiplier", currentMultiplier * 1.15); // 15% additional delay when near capacity
+        double loadMultiplier() {
+            return utilization() > NEAR_CAPACITY_UTILIZATION ? definition.getNearCapacityMultiplier() : 1.0;
         }
         
-        constraints.put("lastUpdated", System.currentTimeMillis());
-        return constraints;
-    }
-    
-    private boolean isInPeakHours(int currentHour, String[] peakHours) {
-        for (String peakHour : peakHours) {
-            String[] times = peakHour.split("-");
-            int startHour = Integer.parseInt(times[0].split(":")[0]);
-            int endHour = Integer.parseInt(times[1].split(":")[0]);
-            
-            if (currentHour >= startHour && currentHour < endHour) {
-                return true;
+        void rebuild(int minute) {
+            lock.lock();
+            try {
+                current = new DepotConstraints(multipliers[minute] * loadMultiplier(), maxCapacity, currentLoad,
+                    utilization(), definition.getDriverAvailability(), definition.getVehicleAvailability(),
+                    definition.getProcessingTimeMinutes(), peak[minute], System.currentTimeMillis(), false);
+            } finally {
+                lock.unlock();
             }
         }
-        return false;
-    }
-    
-    private Map<String, Object> createFallbackDepotConstraints() {
-        Map<String, Object> constraints = new HashMap<>();
-        constraints.put("multiplier", 1.0);
-        constraints.put("maxCapacity", 200);
-        constraints.put("currentLoad", 100);
-        constraints.put("driverAvailability", 0.80);
-        constraints.put("vehicleAvailability", 0.85);
-        constraints.put("processingTimeMinutes", 20);
-        constraints.put("peakHours", new String[]{"09:00-11:00", "17:00-19:00"});
-        constraints.put("capacityUtilization", 0.5);
-        constraints.put("isPeakHour", false);
-        constraints.put("lastUpdated", System.currentTimeMillis());
-        constraints.put("fallback", true);
-        return constraints;
     }
 }
@@ -1,32 +1,71 @@
 package com.dpd.uk.eta.service;
 
+import com.dpd.uk.common.model.Address;
 import com.dpd.uk.common.model.ETA;
 import com.dpd.uk.common.model.Parcel;
+import com.dpd.uk.eta.history.ETAEvent;
+import com.dpd.uk.eta.history.ETAEventLog;
+import com.dpd.uk.eta.inference.ETAFeatures;
+import com.dpd.uk.eta.inference.TreeEnsembleModel;
+import com.dpd.uk.eta.model.DepotConstraints;
 import com.dpd.uk.eta.model.ETACalculation;
+import com.dpd.uk.eta.model.ETAFactor;
+import com.dpd.uk.eta.model.HistoricalFactors;
+import com.dpd.uk.eta.model.TrafficFactors;
+import com.dpd.uk.eta.model.VehicleFactors;
 import com.dpd.uk.eta.repository.ETACalculationRepository;
+import com.dpd.uk.eta.store.ActiveETAStore;
+import com.dpd.uk.eta.store.ArrivalIndex;
+import com.dpd.uk.eta.util.GeoUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ETACalculationService {
     
+    private static final String HEURISTIC_VERSION = "heuristic";
+    private static final int SCORING_BATCH_SIZE = 256;
+    
+    private final ActiveETAStore activeETAStore;
     private final ETACalculationRepository etaCalculationRepository;
+    private final ETAEventLog etaEventLog;
+    private final ArrivalIndex arrivalIndex;
     private final TrafficDataService trafficDataService;
     private final HistoricalDataService historicalDataService;
     private final DepotConstraintsService depotConstraintsService;
     private final VehicleTelematicsService vehicleTelematicsService;
     private final ETANotificationService etaNotificationService;
+    private final DeliveryAccuracyService deliveryAccuracyService;
+    private final ExecutorService etaFactorExecutor;
+    private final ETAModelService etaModelService;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${eta.calculation.latency-budget-ms:800}")
+    private long latencyBudgetMs;
     
     @Transactional
     public ETA calculateETA(Parcel parcel) {
@@ -36,36 +75,38 @@ public class ETACalculationService {
             // Get or create ETA calculation
             ETACalculation calculation = getOrCreateCalculation(parcel);
             
-            // Gather all factors asynchronously
-            CompletableFuture<Map<String, Object>> trafficFactors = 
-                CompletableFuture.supplyAsync(() -> trafficDataService.getTrafficFactors(parcel));
+            // Gather all factors in parallel; a slow or failing source yields null instead of stalling the ETA
+            CompletableFuture<TrafficFactors> trafficFactors = 
+                fetchFactor("traffic", parcel, () -> trafficDataService.getTrafficFactors(parcel));
             
-            CompletableFuture<Map<String, Object>> historicalFactors = 
-                CompletableFuture.supplyAsync(() -> historicalDataService.getHistoricalFactors(parcel));
+            CompletableFuture<HistoricalFactors> historicalFactors = 
+                fetchFactor("historical", parcel, () -> historicalDataService.getHistoricalFactors(parcel));
             
-            CompletableFuture<Map<String, Object>> depotConstraints = 
-                CompletableFuture.supplyAsync(() -> depotConstraintsService.getDepotConstraints(parcel.getDepotId()));
+            CompletableFuture<DepotConstraints> depotConstraints = 
+                fetchFactor("depot", parcel, () -> depotConstraintsService.getDepotConstraints(parcel.getDepotId()));
             
-            CompletableFuture<Map<String, Object>> vehicleFactors = 
-                CompletableFuture.supplyAsync(() -> vehicleTelematicsService.getVehicleFactors(parcel.getVehicleId()));
+            CompletableFuture<VehicleFactors> vehicleFactors = 
+                fetchFactor("vehicle", parcel, () -> vehicleTelematicsService.getVehicleFactors(parcel.getVehicleId()));
             
-            // Wait for all factors and calculate ETA
+            // The latency budget is the only deadline: use whatever has arrived by then
             CompletableFuture.allOf(trafficFactors, historicalFactors, depotConstraints, vehicleFactors)
-                .thenRun(() -> {
-                    calculation.setTrafficFactors(trafficFactors.join());
-                    calculation.setHistoricalFactors(historicalFactors.join());
-                    calculation.setDepotConstraints(depotConstraints.join());
-                    calculation.setVehicleFactors(vehicleFactors.join());
-                    
-                    // Calculate final ETA
-                    calculateFinalETA(calculation);
-                    
-                    // Save and notify
-                    etaCalculationRepository.save(calculation);
-                    etaNotificationService.notifyETAUpdate(convertToETA(calculation));
-                });
+                .completeOnTimeout(null, latencyBudgetMs, TimeUnit.MILLISECONDS)
+                .join();
+            
+            calculation.setTrafficFactors(trafficFactors.getNow(null));
+            calculation.setHistoricalFactors(historicalFactors.getNow(null));
+            calculation.setDepotConstraints(depotConstraints.getNow(null));
+            calculation.setVehicleFactors(vehicleFactors.getNow(null));
+            
+            // Calculate final ETA
+            calculateFinalETA(calculation);
             
-            return convertToETA(calculation);
+            // Save (persisted write-behind) and notify
+            activeETAStore.put(calculation);
+            ETA eta = convertToETA(calculation);
+            etaNotificationService.notifyETAUpdate(eta);
+            
+            return eta;
             
         } catch (Exception e) {
             log.error("Error calculating ETA for parcel: {}", parcel.getParcelId(), e);
@@ -73,115 +114,435 @@ public class ETACalculationService {
         }
     }
     
-    @Cacheable(value = "eta-calculations", key = "#parcelId")
+    /**
+     * Calculates ETAs for a batch of parcels. Factors are fetched once per distinct depot, vehicle,
+     * origin/destination cell and historical lane; results reach Mongo in the store's next bulk flush.
+     */
+    @Transactional
+    public List<ETA> calculateETAs(List<Parcel> parcels) {
+        log.info("Calculating ETAs for {} parcels", parcels.size());
+        
+        // Last entry wins when a parcel appears twice in the batch
+        List<Parcel> valid = List.copyOf(parcels.stream()
+            .filter(parcel -> parcel.getParcelId() != null && parcel.getOrigin() != null && parcel.getDestination() != null)
+            .collect(Collectors.toMap(Parcel::getParcelId, Function.identity(), (a, b) -> b, LinkedHashMap::new))
+            .values());
+        if (valid.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<String, ETACalculation> existing = activeETAStore.getAll(valid.stream().map(Parcel::getParcelId).toList());
+        List<ETACalculation> calculations = withFreshFactors(valid, existing);
+        calculateFinalETAs(calculations);
+        
+        List<ETA> etas = store(calculations);
+        log.info("Calculated {} ETAs", etas.size());
+        return etas;
+    }
+    
+    /**
+     * Re-evaluates stored calculations against fresh factors, with the same grouped lookups as {@link #calculateETAs}.
+     * The remaining time to the stored arrival is scaled by how much the factors moved, rather than estimated
+     * again from now, so refreshes without new position data do not push the arrival back.
+     */
+    public List<ETA> recalculate(List<ETACalculation> stored) {
+        Map<String, ETACalculation> previous = stored.stream()
+            .filter(calculation -> calculation.getOrigin() != null && calculation.getDestination() != null)
+            .collect(Collectors.toMap(ETACalculation::getParcelId, Function.identity(), (a, b) -> b, LinkedHashMap::new));
+        if (previous.isEmpty()) {
+            return List.of();
+        }
+        
+        List<ETACalculation> calculations = withFreshFactors(previous.values().stream().map(this::toParcel).toList(), previous);
+        LocalDateTime now = LocalDateTime.now();
+        List<ETACalculation> unestimated = new ArrayList<>();
+        for (ETACalculation calculation : calculations) {
+            ETACalculation before = previous.get(calculation.getParcelId());
+            if (before.getEstimatedArrival() != null) {
+                rescaleEstimate(calculation, before, now);
+            } else {
+                unestimated.add(calculation);
+            }
+        }
+        calculateFinalETAs(unestimated);
+        
+        return store(calculations);
+    }
+    
+    private List<ETACalculation> withFreshFactors(List<Parcel> valid, Map<String, ETACalculation> existing) {
+        // One lookup per distinct key; the first parcel in each group stands in for the rest
+        Map<String, CompletableFuture<TrafficFactors>> trafficFactors = fetchGrouped(valid, this::trafficKey,
+            parcel -> fetchFactor("traffic", parcel, () -> trafficDataService.getTrafficFactors(parcel)));
+        Map<String, CompletableFuture<HistoricalFactors>> historicalFactors = fetchGrouped(valid, this::historicalKey,
+            parcel -> fetchFactor("historical", parcel, () -> historicalDataService.getHistoricalFactors(parcel)));
+        Map<String, CompletableFuture<DepotConstraints>> depotConstraints = fetchGrouped(valid, Parcel::getDepotId,
+            parcel -> fetchFactor("depot", parcel, () -> depotConstraintsService.getDepotConstraints(parcel.getDepotId())));
+        Map<String, CompletableFuture<VehicleFactors>> vehicleFactors = fetchGrouped(valid, Parcel::getVehicleId,
+            parcel -> fetchFactor("vehicle", parcel, () -> vehicleTelematicsService.getVehicleFactors(parcel.getVehicleId())));
+        
+        List<CompletableFuture<? extends ETAFactor>> lookups = new ArrayList<>();
+        lookups.addAll(trafficFactors.values());
+        lookups.addAll(historicalFactors.values());
+        lookups.addAll(depotConstraints.values());
+        lookups.addAll(vehicleFactors.values());
+        log.debug("Fetching {} distinct factor lookups for {} parcels", lookups.size(), valid.size());
+        
+        CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new))
+            .completeOnTimeout(null, latencyBudgetMs, TimeUnit.MILLISECONDS)
+            .join();
+        
+        return valid.stream()
+            .map(parcel -> {
+                ETACalculation calculation = existing.containsKey(parcel.getParcelId())
+                    ? existing.get(parcel.getParcelId()).toBuilder().build()
+                    : newCalculation(parcel);
+                calculation.setTrafficFactors(factorFor(trafficFactors, trafficKey(parcel)));
+                calculation.setHistoricalFactors(factorFor(historicalFactors, historicalKey(parcel)));
+                calculation.setDepotConstraints(factorFor(depotConstraints, parcel.getDepotId()));
+                calculation.setVehicleFactors(factorFor(vehicleFactors, parcel.getVehicleId()));
+                return calculation;
+            })
+            .toList();
+    }
+    
+    private List<ETA> store(List<ETACalculation> calculations) {
+        activeETAStore.putAll(calculations);
+        
+        List<ETA> etas = calculations.stream().map(this::convertToETA).toList();
+        etas.forEach(etaNotificationService::notifyETAUpdate);
+        return etas;
+    }
+    
     public Optional<ETA> getETA(String parcelId) {
-        return etaCalculationRepository.findByParcelIdAndIsActiveTrue(parcelId)
+        return activeETAStore.get(parcelId)
             .map(this::convertToETA);
     }
     
     public List<ETA> getETAsByDepot(String depotId) {
-        return etaCalculationRepository.findByDepotIdAndIsActiveTrue(depotId)
+        return activeETAStore.getByDepot(depotId)
+            .stream()
+            .map(this::convertToETA)
+            .toList();
+    }
+    
+    /**
+     * Hands the depot's active ETAs to {@code sink} one at a time. Depots already held in memory are read from
+     * the store; others stream from a Mongo cursor rather than being loaded whole.
+     */
+    public void streamETAsByDepot(String depotId, Consumer<ETA> sink) {
+        if (activeETAStore.isDepotLoaded(depotId)) {
+            activeETAStore.getByDepot(depotId).forEach(calculation -> sink.accept(convertToETA(calculation)));
+            return;
+        }
+        try (Stream<ETACalculation> cursor = etaCalculationRepository.streamByDepotIdAndIsActiveTrue(depotId)) {
+            cursor.forEach(calculation -> sink.accept(convertToETA(calculation)));
+        }
+    }
+    
+    /**
+     * Active ETAs for the depot arriving within the next {@code withinMinutes}, soonest first.
+     */
+    public List<ETA> getArrivingETAs(String depotId, int withinMinutes) {
+        activeETAStore.loadDepot(depotId);
+        return arrivalIndex.arriving(depotId, withinMinutes)
             .stream()
             .map(this::convertToETA)
             .toList();
     }
     
     public List<ETA> getETAsByDriver(String driverId) {
-        return etaCalculationRepository.findByDriverIdAndIsActiveTrue(driverId)
+        return activeETAStore.getByDriver(driverId)
             .stream()
             .map(this::convertToETA)
             .toList();
     }
     
+    /**
+     * Applies real-time factor readings. Each update is merged onto the stored factor, so partial updates keep
+     * the other fields; throws {@link IllegalArgumentException} when an update is malformed.
+     */
     @Transactional
     public void updateETA(String parcelId, Map<String, Object> updates) {
-        etaCalculationRepository.findByParcelIdAndIsActiveTrue(parcelId)
+        activeETAStore.get(parcelId)
+            .map(stored -> stored.toBuilder().build())
             .ifPresent(calculation -> {
                 // Update factors based on real-time data
                 if (updates.containsKey("traffic")) {
-                    calculation.setTrafficFactors((Map<String, Object>) updates.get("traffic"));
+                    calculation.setTrafficFactors(mergeFactor("traffic", calculation.getTrafficFactors(),
+                        updates.get("traffic"), TrafficFactors.class));
                 }
                 if (updates.containsKey("vehicle")) {
-                    calculation.setVehicleFactors((Map<String, Object>) updates.get("vehicle"));
+                    calculation.setVehicleFactors(mergeFactor("vehicle", calculation.getVehicleFactors(),
+                        updates.get("vehicle"), VehicleFactors.class));
                 }
                 
                 calculation.setLastUpdated(LocalDateTime.now());
                 calculateFinalETA(calculation);
                 
-                etaCalculationRepository.save(calculation);
+                activeETAStore.put(calculation);
                 etaNotificationService.notifyETAUpdate(convertToETA(calculation));
             });
     }
     
+    /**
+     * Every prediction made for the parcel and its delivery, oldest first.
+     */
+    public List<ETAEvent> getHistory(String parcelId) {
+        return etaEventLog.history(parcelId);
+    }
+    
+    /**
+     * Records the actual delivery against the last prediction and retires the calculation.
+     */
+    public boolean markDelivered(String parcelId, LocalDateTime deliveredAt) {
+        return activeETAStore.get(parcelId)
+            .map(stored -> {
+                deliveryAccuracyService.recordDelivery(stored, deliveredAt);
+                etaEventLog.recordDelivery(stored, deliveredAt);
+                
+                ETACalculation calculation = stored.toBuilder().build();
+                calculation.setIsActive(false);
+                calculation.setStatus("DELIVERED");
+                calculation.setLastUpdated(LocalDateTime.now());
+                activeETAStore.put(calculation);
+                etaNotificationService.forget(parcelId);
+                return true;
+            })
+            .orElse(false);
+    }
+    
+    /**
+     * Re-estimates one vehicle's open parcels from its live position, reusing the other stored factors.
+     */
+    public void refreshFromPosition(List<ETACalculation> calculations, double latitude, double longitude) {
+        Map<String, VehicleFactors> vehicleFactors = new HashMap<>();
+        Address position = Address.builder()
+            .latitude(latitude)
+            .longitude(longitude)
+            .build();
+        
+        List<ETACalculation> refreshed = new ArrayList<>(calculations.size());
+        for (ETACalculation stored : calculations) {
+            ETACalculation calculation = stored.toBuilder().build();
+            calculation.setCurrentLocation(position);
+            Address destination = calculation.getDestination();
+            if (destination != null && destination.getLatitude() != null && destination.getLongitude() != null) {
+                calculation.setDistanceKm(GeoUtils.haversineKm(latitude, longitude, destination.getLatitude(), destination.getLongitude()));
+            }
+            if (calculation.getVehicleId() != null) {
+                calculation.setVehicleFactors(vehicleFactors.computeIfAbsent(calculation.getVehicleId(),
+                    vehicleTelematicsService::getVehicleFactors));
+            }
+            refreshed.add(calculation);
+        }
+        
+        calculateFinalETAs(refreshed);
+        activeETAStore.putAll(refreshed);
+        refreshed.forEach(calculation -> etaNotificationService.notifyETAUpdate(convertToETA(calculation)));
+        
+        log.debug("Refreshed {} ETAs from live position", calculations.size());
+    }
+    
+    private <T extends ETAFactor> T mergeFactor(String name, T current, Object update, Class<T> type) {
+        if (!(update instanceof Map<?, ?> fields)) {
+            throw new IllegalArgumentException(name + " update must be an object");
+        }
+        Map<String, Object> merged = current != null
+            ? objectMapper.convertValue(current, new TypeReference<Map<String, Object>>() {})
+            : new HashMap<>(Map.of("multiplier", 1.0));
+        fields.forEach((field, value) -> merged.put(String.valueOf(field), value));
+        // A reading pushed to us is live data, unless the caller says otherwise
+        if (!fields.containsKey("fallback")) {
+            merged.put("fallback", false);
+        }
+        if (!fields.containsKey("lastUpdated")) {
+            merged.put("lastUpdated", System.currentTimeMillis());
+        }
+        
+        T factor = objectMapper.convertValue(merged, type);
+        if (!(factor.multiplier() > 0) || Double.isInfinite(factor.multiplier())) {
+            throw new IllegalArgumentException(name + " multiplier must be positive: " + factor.multiplier());
+        }
+        return factor;
+    }
+    
+    private <T extends ETAFactor> CompletableFuture<T> fetchFactor(String factor, Parcel parcel, Supplier<T> source) {
+        return CompletableFuture.supplyAsync(source, etaFactorExecutor)
+            .exceptionally(e -> {
+                log.warn("Failed to fetch {} factors for parcel: {}", factor, parcel.getParcelId(), e);
+                return null;
+            });
+    }
+    
+    private <T extends ETAFactor> Map<String, CompletableFuture<T>> fetchGrouped(
+            List<Parcel> parcels,
+            Function<Parcel, String> keyFn,
+            Function<Parcel, CompletableFuture<T>> fetcher) {
+        Map<String, CompletableFuture<T>> futures = new HashMap<>();
+        for (Parcel parcel : parcels) {
+            String key = keyFn.apply(parcel);
+            if (key != null && !futures.containsKey(key)) {
+                futures.put(key, fetcher.apply(parcel));
+            }
+        }
+        return futures;
+    }
+    
+    private <T extends ETAFactor> T factorFor(Map<String, CompletableFuture<T>> futures, String key) {
+        CompletableFuture<T> future = key != null ? futures.get(key) : null;
+        return future != null ? future.getNow(null) : null;
+    }
+    
+    private String trafficKey(Parcel parcel) {
+        // Same cell pair the traffic cache is keyed on, so nearby parcels share one lookup
+        return trafficDataService.cellKey(parcel);
+    }
+    
+    private String historicalKey(Parcel parcel) {
+        // Lookups resolve to the rollup's district-pair lane, and the hour of week is the same across one batch
+        return HistoricalRollupService.district(parcel.getOrigin().getPostcode()) + ">"
+            + HistoricalRollupService.district(parcel.getDestination().getPostcode()) + "|" + parcel.getType();
+    }
+    
     private ETACalculation getOrCreateCalculation(Parcel parcel) {
-        return etaCalculationRepository.findByParcelIdAndIsActiveTrue(parcel.getParcelId())
-            .orElse(ETACalculation.builder()
-                .parcelId(parcel.getParcelId())
-                .depotId(parcel.getDepotId())
-                .driverId(parcel.getDriverId())
-                .vehicleId(parcel.getVehicleId())
-                .origin(parcel.getOrigin())
-                .destination(parcel.getDestination())
-                .calculatedAt(LocalDateTime.now())
-                .isActive(true)
-                .status("CALCULATING")
-                .build());
+        return activeETAStore.get(parcel.getParcelId())
+            .map(stored -> stored.toBuilder().build())
+            .orElseGet(() -> newCalculation(parcel));
+    }
+    
+    private Parcel toParcel(ETACalculation calculation) {
+        return Parcel.builder()
+            .parcelId(calculation.getParcelId())
+            .origin(calculation.getOrigin())
+            .destination(calculation.getDestination())
+            .type(calculation.getParcelType())
+            .depotId(calculation.getDepotId())
+            .driverId(calculation.getDriverId())
+            .vehicleId(calculation.getVehicleId())
+            .build();
+    }
+    
+    private ETACalculation newCalculation(Parcel parcel) {
+        return ETACalculation.builder()
+            .parcelId(parcel.getParcelId())
+            .depotId(parcel.getDepotId())
+            .driverId(parcel.getDriverId())
+            .vehicleId(parcel.getVehicleId())
+            .parcelType(parcel.getType())
+            .origin(parcel.getOrigin())
+            .destination(parcel.getDestination())
+            .calculatedAt(LocalDateTime.now())
+            .isActive(true)
+            .status("CALCULATING")
+            .build();
     }
     
     private void calculateFinalETA(ETACalculation calculation) {
-        // This is where the actual ETA calculation algorithm would be implemented
-        // For now, using a simplified calculation based on distance and factors
+        calculateFinalETAs(List.of(calculation));
+    }
+    
+    /**
+     * Scores calculations with the active model in micro-batches, or with the factor heuristic
+     * when no model is loaded. The model is read once so every calculation in the call shares a version.
+     */
+    private void calculateFinalETAs(List<ETACalculation> calculations) {
+        LocalDateTime now = LocalDateTime.now();
+        TreeEnsembleModel model = etaModelService.current().orElse(null);
+        if (model == null) {
+            calculations.forEach(calculation -> applyEstimate(calculation, heuristicMinutes(calculation), HEURISTIC_VERSION, now));
+            return;
+        }
         
+        int batchSize = Math.min(SCORING_BATCH_SIZE, calculations.size());
+        double[] features = new double[batchSize * ETAFeatures.COUNT];
+        double[] scores = new double[batchSize];
+        for (int start = 0; start < calculations.size(); start += batchSize) {
+            int rows = Math.min(batchSize, calculations.size() - start);
+            for (int row = 0; row < rows; row++) {
+                ETAFeatures.extract(calculations.get(start + row), now, features, row * ETAFeatures.COUNT);
+            }
+            model.scoreBatch(features, rows, scores);
+            for (int row = 0; row < rows; row++) {
+                applyEstimate(calculations.get(start + row), scores[row], model.version(), now);
+            }
+        }
+    }
+    
+    private double heuristicMinutes(ETACalculation calculation) {
         double baseTimeMinutes = calculateBaseTime(calculation);
-        double trafficMultiplier = getTrafficMultiplier(calculation.getTrafficFactors());
-        double historicalMultiplier = getHistoricalMultiplier(calculation.getHistoricalFactors());
-        double depotMultiplier = getDepotMultiplier(calculation.getDepotConstraints());
-        double vehicleMultiplier = getVehicleMultiplier(calculation.getVehicleFactors());
-        
-        int finalMinutes = (int) (baseTimeMinutes * trafficMultiplier * historicalMultiplier * depotMultiplier * vehicleMultiplier);
+        double trafficMultiplier = ETAFactor.multiplierOf(calculation.getTrafficFactors());
+        double historicalMultiplier = ETAFactor.multiplierOf(calculation.getHistoricalFactors());
+        double depotMultiplier = ETAFactor.multiplierOf(calculation.getDepotConstraints());
+        double vehicleMultiplier = ETAFactor.multiplierOf(calculation.getVehicleFactors());
         
-        calculation.setEstimatedMinutes(finalMinutes);
-        calculation.setEstimatedArrival(LocalDateTime.now().plusMinutes(finalMinutes));
-        calculation.setConfidence(determineConfidence(calculation));
-        calculation.setLastUpdated(LocalDateTime.now());
-        calculation.setStatus("CALCULATED");
+        return baseTimeMinutes * trafficMultiplier * historicalMultiplier * depotMultiplier * vehicleMultiplier;
     }
     
-    private double calculateBaseTime(ETACalculation calculation) {
-        // Simplified base time calculation based on distance
-        // In reality, this would use sophisticated routing algorithms
-        return calculation.getDistanceKm() != null ? calculation.getDistanceKm() * 2.0 : 60.0;
+    private void applyEstimate(ETACalculation calculation, double minutes, String version, LocalDateTime now) {
+        applyArrival(calculation, now.plusMinutes((int) Math.max(0, minutes)), version, now);
     }
     
-    private double getTrafficMultiplier(Map<String, Object> trafficFactors) {
-        if (trafficFactors == null) return 1.0;
-        return (Double) trafficFactors.getOrDefault("multiplier", 1.0);
+    private void rescaleEstimate(ETACalculation calculation, ETACalculation previous, LocalDateTime now) {
+        // Only factors present both times count, so a lookup that timed out does not move the arrival
+        double ratio = factorRatio(calculation.getTrafficFactors(), previous.getTrafficFactors())
+            * factorRatio(calculation.getHistoricalFactors(), previous.getHistoricalFactors())
+            * factorRatio(calculation.getDepotConstraints(), previous.getDepotConstraints())
+            * factorRatio(calculation.getVehicleFactors(), previous.getVehicleFactors());
+        long remainingSeconds = Math.max(0, Duration.between(now, previous.getEstimatedArrival()).toSeconds());
+        applyArrival(calculation, now.plusSeconds(Math.round(remainingSeconds * ratio)), previous.getCalculationVersion(), now);
     }
     
-    private double getHistoricalMultiplier(Map<String, Object> historicalFactors) {
-        if (historicalFactors == null) return 1.0;
-        return (Double) historicalFactors.getOrDefault("multiplier", 1.0);
+    private double factorRatio(ETAFactor current, ETAFactor previous) {
+        return current != null && previous != null && previous.multiplier() > 0
+            ? current.multiplier() / previous.multiplier()
+            : 1.0;
     }
     
-    private double getDepotMultiplier(Map<String, Object> depotConstraints) {
-        if (depotConstraints == null) return 1.0;
-        return (Double) depotConstraints.getOrDefault("multiplier", 1.0);
+    private void applyArrival(ETACalculation calculation, LocalDateTime arrival, String version, LocalDateTime now) {
+        calculation.setEstimatedMinutes((int) Duration.between(now, arrival).toMinutes());
+        calculation.setEstimatedArrival(arrival);
+        calculation.setLastUpdated(now);
+        calculation.setCalculationVersion(version);
+        applyArrivalWindow(calculation);
+        calculation.setStatus(statusFor(calculation));
     }
     
-    private double getVehicleMultiplier(Map<String, Object> vehicleFactors) {
-        if (vehicleFactors == null) return 1.0;
-        return (Double) vehicleFactors.getOrDefault("multiplier", 1.0);
+    /**
+     * CALCULATED when every factor arrived, otherwise PARTIAL.
+     */
+    String statusFor(ETACalculation calculation) {
+        return factorCount(calculation) == 4 ? "CALCULATED" : "PARTIAL";
+    }
+    
+    /**
+     * Sets p50/p90 arrival from the lane's observed actual/predicted ratios, measured from {@code lastUpdated}.
+     * Until the lane has enough deliveries the point estimate stands and confidence reflects factor coverage.
+     */
+    void applyArrivalWindow(ETACalculation calculation) {
+        Optional<DeliveryAccuracyService.ArrivalWindow> window = deliveryAccuracyService.window(calculation);
+        if (window.isEmpty()) {
+            calculation.setArrivalP50(calculation.getEstimatedArrival());
+            calculation.setArrivalP90(null);
+            calculation.setConfidence(determineConfidence(calculation));
+            return;
+        }
+        
+        LocalDateTime from = calculation.getLastUpdated();
+        long predictedSeconds = Math.max(0, Duration.between(from, calculation.getEstimatedArrival()).toSeconds());
+        calculation.setArrivalP50(from.plusSeconds(Math.round(predictedSeconds * window.get().p50Ratio())));
+        calculation.setArrivalP90(from.plusSeconds(Math.round(predictedSeconds * window.get().p90Ratio())));
+        calculation.setConfidence(window.get().confidence());
+    }
+    
+    private double calculateBaseTime(ETACalculation calculation) {
+        // Simplified base time calculation based on distance
+        // In reality, this would use sophisticated routing algorithms
+        return calculation.getDistanceKm() != null ? calculation.getDistanceKm() * 2.0 : 60.0;
     }
     
     private ETA.ETAConfidence determineConfidence(ETACalculation calculation) {
-        // Determine confidence based on data quality and recency
-        int dataQuality = 0;
-        if (calculation.getTrafficFactors() != null) dataQuality++;
-        if (calculation.getHistoricalFactors() != null) dataQuality++;
-        if (calculation.getDepotConstraints() != null) dataQuality++;
-        if (calculation.getVehicleFactors() != null) dataQuality++;
-        
-        return switch (dataQuality) {
+        // Determine confidence based on data quality
+        return switch (factorCount(calculation)) {
             case 4 -> ETA.ETAConfidence.HIGH;
             case 3 -> ETA.ETAConfidence.MEDIUM;
             case 2 -> ETA.ETAConfidence.LOW;
@@ -189,10 +550,28 @@ public class ETACalculationService {
         };
     }
     
-    private ETA convertToETA(ETACalculation calculation) {
+    private int factorCount(ETACalculation calculation) {
+        int count = 0;
+        if (calculation.getTrafficFactors() != null) count++;
+        if (calculation.getHistoricalFactors() != null) count++;
+        if (calculation.getDepotConstraints() != null) count++;
+        if (calculation.getVehicleFactors() != null) count++;
+        return count;
+    }
+    
+    ETA convertToETA(ETACalculation calculation) {
+        // Only the factors that arrived; the records serialise as-is, with no per-call map copies
+        Map<String, Object> factors = new HashMap<>(4);
+        putIfPresent(factors, "traffic", calculation.getTrafficFactors());
+        putIfPresent(factors, "historical", calculation.getHistoricalFactors());
+        putIfPresent(factors, "depot", calculation.getDepotConstraints());
+        putIfPresent(factors, "vehicle", calculation.getVehicleFactors());
+        
         return ETA.builder()
             .parcelId(calculation.getParcelId())
             .estimatedArrival(calculation.getEstimatedArrival())
+            .estimatedArrivalP50(calculation.getArrivalP50())
+            .estimatedArrivalP90(calculation.getArrivalP90())
             .confidence(calculation.getConfidence())
             .depotId(calculation.getDepotId())
             .driverId(calculation.getDriverId())
@@ -202,15 +581,16 @@ public class ETACalculationService {
             .estimatedMinutes(calculation.getEstimatedMinutes())
             .distanceKm(calculation.getDistanceKm())
             .routeId(calculation.getRouteId())
-            .factors(Map.of(
-                "traffic", calculation.getTrafficFactors(),
-                "historical", calculation.getHistoricalFactors(),
-                "depot", calculation.getDepotConstraints(),
-                "vehicle", calculation.getVehicleFactors()
-            ))
+            .factors(factors)
             .build();
     }
     
+    private void putIfPresent(Map<String, Object> factors, String name, ETAFactor factor) {
+        if (factor != null) {
+            factors.put(name, factor);
+        }
+    }
+    
     private ETA createFallbackETA(Parcel parcel) {
         return ETA.builder()
             .parcelId(parcel.getParcelId())
@@ -0,0 +1,72 @@
+package com.dpd.uk.eta.service;
+
+import com.dpd.uk.eta.inference.TreeEnsembleModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the active ETA model, loaded from {@code eta.model.path} and swapped in place when the file
+ * changes. Callers take one reference per batch so a batch is scored by a single model version.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ETAModelService {
+    
+    private final ObjectMapper objectMapper;
+    
+    private final AtomicReference<TreeEnsembleModel> model = new AtomicReference<>();
+    private volatile long loadedModifiedMillis = -1;
+    
+    @Value("${eta.model.path:}")
+    private String modelPath;
+    
+    public Optional<TreeEnsembleModel> current() {
+        return Optional.ofNullable(model.get());
+    }
+    
+    @PostConstruct
+    void init() {
+        reload();
+    }
+    
+    @Scheduled(fixedDelayString = "${eta.model.reload-interval-ms:60000}")
+    public void reload() {
+        if (modelPath == null || modelPath.isBlank()) {
+            return;
+        }
+        
+        Path path = Path.of(modelPath);
+        try {
+            if (!Files.isRegularFile(path)) {
+                return;
+            }
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            if (modified == loadedModifiedMillis) {
+                return;
+            }
+            
+            // Recorded up front so a broken file is reported once, not on every poll
+            loadedModifiedMillis = modified;
+            
+            TreeEnsembleModel loaded = TreeEnsembleModel.fromSpec(
+                objectMapper.readValue(path.toFile(), TreeEnsembleModel.ModelSpec.class));
+            TreeEnsembleModel previous = model.getAndSet(loaded);
+            log.info("Loaded ETA model {} ({} trees), replacing {}", loaded.version(), loaded.treeCount(),
+                previous != null ? previous.version() : "heuristic");
+        } catch (Exception e) {
+            // Keep scoring with whatever was active before
+            log.error("Failed to load ETA model from {}", path, e);
+        }
+    }
+}
@@ -1,11 +1,23 @@
 package com.dpd.uk.eta.service;
 
 import com.dpd.uk.common.model.ETA;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publishes ETA updates downstream. Updates are coalesced per parcel over a short window and only
+ * published when the arrival or confidence has moved meaningfully since the last published ETA.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -13,12 +25,93 @@ public class ETANotificationService {
     
     private final StreamBridge streamBridge;
     
+    // Latest unpublished ETA per parcel; a burst of recalculations collapses to its last value
+    private final Map<String, ETA> pending = new ConcurrentHashMap<>();
+    private final Map<String, ETA> lastPublished = new ConcurrentHashMap<>();
+    
+    @Value("${eta.notification.min-change-minutes:5}")
+    private long minChangeMinutes;
+    
+    @Value("${eta.calculation.max-prediction-hours:24}")
+    private long maxPredictionHours;
+    
     public void notifyETAUpdate(ETA eta) {
+        if (eta.getParcelId() == null) {
+            return;
+        }
+        pending.put(eta.getParcelId(), eta);
+    }
+    
+    /**
+     * Stops tracking a parcel that will get no further updates, e.g. once delivered.
+     */
+    public void forget(String parcelId) {
+        pending.remove(parcelId);
+        lastPublished.remove(parcelId);
+    }
+    
+    @Scheduled(fixedDelayString = "${eta.notification.coalesce-window-ms:2000}")
+    public void publishPending() {
+        int published = 0;
+        int suppressed = 0;
+        
+        for (String parcelId : pending.keySet()) {
+            ETA eta = pending.remove(parcelId);
+            if (eta == null) {
+                continue;
+            }
+            
+            ETA previous = lastPublished.get(parcelId);
+            if (previous != null && !isSignificantChange(previous, eta)) {
+                suppressed++;
+                continue;
+            }
+            
+            if (publish(eta)) {
+                lastPublished.put(parcelId, eta);
+                published++;
+                if (previous != null) {
+                    notifyETAChange(previous, eta);
+                }
+            } else {
+                // Retry in the next window unless a newer update has arrived meanwhile
+                pending.putIfAbsent(parcelId, eta);
+            }
+        }
+        
+        if (published > 0 || suppressed > 0) {
+            log.debug("Published {} ETA updates, suppressed {} below the change threshold", published, suppressed);
+        }
+    }
+    
+    @Scheduled(fixedRate = 3600000) // Run every hour
+    public void evictPublished() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(maxPredictionHours);
+        lastPublished.values().removeIf(eta -> eta.getEstimatedArrival() == null || eta.getEstimatedArrival().isBefore(cutoff));
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        publishPending();
+    }
+    
+    private boolean isSignificantChange(ETA previous, ETA current) {
+        if (previous.getConfidence() != current.getConfidence()) {
+            return true;
+        }
+        if (previous.getEstimatedArrival() == null || current.getEstimatedArrival() == null) {
+            return previous.getEstimatedArrival() != current.getEstimatedArrival();
+        }
+        long shiftMinutes = Math.abs(Duration.between(previous.getEstimatedArrival(), current.getEstimatedArrival()).toMinutes());
+        return shiftMinutes >= minChangeMinutes;
+    }
+    
+    private boolean publish(ETA eta) {
         try {
-            log.info("Sending ETA update notification for parcel: {}", eta.getParcelId());
+            log.debug("Sending ETA update notification for parcel: {}", eta.getParcelId());
             
-            // Send to Kafka topic for real-time updates
-            streamBridge.send("eta-calculated-out", eta);
+            // Send to Kafka topic for real-time updates; the producer batches sends (see linger.ms)
+            boolean sent = streamBridge.send("eta-calculated-out", eta);
             
             // In a real implementation, this would also:
             // 1. Send WebSocket notifications to connected clients
@@ -26,16 +119,17 @@ public class ETANotificationService {
             // 3. Update real-time dashboards
             // 4. Send email/SMS notifications if configured
             
-            log.debug("ETA update notification sent successfully for parcel: {}", eta.getParcelId());
+            return sent;
             
         } catch (Exception e) {
             log.error("Failed to send ETA update notification for parcel: {}", eta.getParcelId(), e);
+            return false;
         }
     }
     
-    public void notifyETAChange(ETA oldEta, ETA newEta) {
+    private void notifyETAChange(ETA oldEta, ETA newEta) {
         try {
-            log.info("Sending ETA change notification for parcel: {} ({} -> {})", 
+            log.debug("Sending ETA change notification for parcel: {} ({} -> {})", 
                 newEta.getParcelId(), 
                 oldEta.getEstimatedArrival(), 
                 newEta.getEstimatedArrival());
@@ -45,7 +139,7 @@ public class ETANotificationService {
                 .parcelId(newEta.getParcelId())
                 .oldEta(oldEta)
                 .newEta(newEta)
-                .changeReason("TRAFFIC_UPDATE")
+                .changeReason(oldEta.getConfidence() != newEta.getConfidence() ? "CONFIDENCE_CHANGE" : "ARRIVAL_SHIFT")
                 .timestamp(System.currentTimeMillis())
                 .build();
             
@@ -0,0 +1,102 @@
+package com.dpd.uk.eta.service;
+
+import com.dpd.uk.eta.model.ETACalculation;
+import com.dpd.uk.eta.store.ActiveETAStore;
+import com.dpd.uk.eta.store.RefreshQueue;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Recomputes active ETAs as they fall due in the {@link RefreshQueue}. Each tick has a global budget of
+ * recomputations, dealt out to depots round-robin a quantum at a time so one busy depot cannot starve the
+ * rest; the starting depot rotates between ticks.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ETARefreshScheduler {
+    
+    private final RefreshQueue refreshQueue;
+    private final ActiveETAStore activeETAStore;
+    private final ETACalculationService etaCalculationService;
+    private final RouteETAService routeETAService;
+    
+    private int rotation;
+    
+    @Value("${eta.refresh.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${eta.refresh.max-per-tick:500}")
+    private int maxPerTick;
+    
+    @Value("${eta.refresh.depot-quantum:25}")
+    private int depotQuantum;
+    
+    @Scheduled(fixedDelayString = "${eta.refresh.tick-interval-ms:5000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        
+        List<String> parcelIds = selectDue();
+        if (parcelIds.isEmpty()) {
+            return;
+        }
+        
+        // Parcels on a tracked route are projected by the route pass from stop progress; dequeue them, or their
+        // provisional retry would bring them back every interval. The route pass's next update requeues them.
+        List<ETACalculation> due = new ArrayList<>(parcelIds.size());
+        for (ETACalculation calculation : activeETAStore.getAll(parcelIds).values()) {
+            if (routeETAService.isTracked(calculation.getRouteId())) {
+                refreshQueue.remove(calculation.getDepotId(), calculation.getParcelId());
+            } else {
+                due.add(calculation);
+            }
+        }
+        
+        try {
+            long started = System.currentTimeMillis();
+            etaCalculationService.recalculate(due);
+            log.debug("Refreshed {} due ETAs in {} ms", due.size(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Failed to refresh {} due ETAs", due.size(), e);
+        }
+    }
+    
+    private List<String> selectDue() {
+        List<String> depots = refreshQueue.depots();
+        if (depots.isEmpty()) {
+            return List.of();
+        }
+        Collections.rotate(depots, -Math.floorMod(rotation++, depots.size()));
+        
+        List<String> selected = new ArrayList<>();
+        Set<String> drained = new HashSet<>();
+        while (selected.size() < maxPerTick && drained.size() < depots.size()) {
+            for (String depotId : depots) {
+                if (drained.contains(depotId)) {
+                    continue;
+                }
+                int quantum = Math.min(depotQuantum, maxPerTick - selected.size());
+                List<String> due = refreshQueue.pollDue(depotId, quantum);
+                if (due.size() < quantum) {
+                    drained.add(depotId);
+                }
+                selected.addAll(due);
+                if (selected.size() >= maxPerTick) {
+                    break;
+                }
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,201 @@
+package com.dpd.uk.eta.service;
+
+import com.dpd.uk.eta.model.ETACalculation;
+import com.dpd.uk.eta.store.ActiveETAStore;
+import com.dpd.uk.eta.store.ETAChangeFeed;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Server-sent event streams of ETA changes for a depot or driver view. A stream opens with the view's
+ * current ETAs and then carries deltas: an {@code eta} event per changed parcel, or {@code removed} when
+ * a parcel is delivered or leaves the view. Changes queue per stream and collapse to the latest per parcel,
+ * so a slow client receives fewer events rather than holding up writers.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ETAStreamService {
+    
+    private final ETAChangeFeed etaChangeFeed;
+    private final ActiveETAStore activeETAStore;
+    private final ETACalculationService etaCalculationService;
+    private final ExecutorService etaFactorExecutor;
+    
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    
+    @Value("${eta.stream.timeout-ms:1800000}")
+    private long timeoutMillis;
+    
+    public SseEmitter subscribeDepot(String depotId) {
+        return subscribe(ETAChangeFeed.Scope.DEPOT, depotId, ETACalculation::getDepotId,
+            () -> activeETAStore.getByDepot(depotId));
+    }
+    
+    public SseEmitter subscribeDriver(String driverId) {
+        return subscribe(ETAChangeFeed.Scope.DRIVER, driverId, ETACalculation::getDriverId,
+            () -> activeETAStore.getByDriver(driverId));
+    }
+    
+    @Scheduled(fixedDelayString = "${eta.stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        // Keeps idle streams open through proxies and notices clients that went away
+        subscriptions.forEach(Subscription::heartbeat);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+    }
+    
+    private SseEmitter subscribe(ETAChangeFeed.Scope scope, String key, Function<ETACalculation, String> keyOf,
+                                 Supplier<List<ETACalculation>> snapshot) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscription subscription = new Subscription(emitter, key, keyOf);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        
+        // Subscribe before taking the snapshot so no change falls between the two; overlaps collapse per parcel
+        subscription.unsubscribe = etaChangeFeed.subscribe(scope, key, subscription::offer);
+        subscriptions.add(subscription);
+        snapshot.get().forEach(subscription::offer);
+        
+        log.debug("Opened ETA stream for {} {} ({} open)", scope, key, subscriptions.size());
+        return emitter;
+    }
+    
+    private final class Subscription {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final SseEmitter emitter;
+        private final String key;
+        private final Function<ETACalculation, String> keyOf;
+        private Map<String, ETACalculation> pending = new LinkedHashMap<>();
+        private boolean heartbeatDue;
+        private boolean draining;
+        private volatile boolean closed;
+        private volatile Runnable unsubscribe;
+        
+        Subscription(SseEmitter emitter, String key, Function<ETACalculation, String> keyOf) {
+            this.emitter = emitter;
+            this.key = key;
+            this.keyOf = keyOf;
+        }
+        
+        void offer(ETACalculation calculation) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                pending.put(calculation.getParcelId(), calculation);
+                if (!startDrain()) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            etaFactorExecutor.execute(this::drain);
+        }
+        
+        void heartbeat() {
+            lock.lock();
+            try {
+                heartbeatDue = true;
+                if (!startDrain()) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            etaFactorExecutor.execute(this::drain);
+        }
+        
+        /**
+         * Claims the drain under the lock; at most one drain runs per stream so events keep their order.
+         */
+        private boolean startDrain() {
+            if (closed || draining) {
+                return false;
+            }
+            draining = true;
+            return true;
+        }
+        
+        private void drain() {
+            while (true) {
+                Map<String, ETACalculation> batch;
+                boolean sendHeartbeat;
+                lock.lock();
+                try {
+                    if (closed || (pending.isEmpty() && !heartbeatDue)) {
+                        draining = false;
+                        return;
+                    }
+                    batch = pending;
+                    pending = new LinkedHashMap<>();
+                    sendHeartbeat = heartbeatDue;
+                    heartbeatDue = false;
+                } finally {
+                    lock.unlock();
+                }
+                
+                try {
+                    if (sendHeartbeat) {
+                        emitter.send(SseEmitter.event().comment("keepalive"));
+                    }
+                    for (ETACalculation calculation : batch.values()) {
+                        emitter.send(event(calculation));
+                    }
+                } catch (Exception e) {
+                    log.debug("ETA stream for {} closed: {}", key, e.getMessage());
+                    close();
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+        }
+        
+        private SseEmitter.SseEventBuilder event(ETACalculation calculation) {
+            String parcelId = calculation.getParcelId();
+            if (Boolean.FALSE.equals(calculation.getIsActive()) || !key.equals(keyOf.apply(calculation))) {
+                return SseEmitter.event().name("removed").id(parcelId).data(parcelId);
+            }
+            return SseEmitter.event().name("eta").id(parcelId)
+                .data(etaCalculationService.convertToETA(calculation), MediaType.APPLICATION_JSON);
+        }
+        
+        void close() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                pending.clear();
+            } finally {
+                lock.unlock();
+            }
+            if (unsubscribe != null) {
+                unsubscribe.run();
+            }
+            subscriptions.remove(this);
+        }
+    }
+}
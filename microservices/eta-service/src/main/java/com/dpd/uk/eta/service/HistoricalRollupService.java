@@ -0,0 +1,247 @@
+package com.dpd.uk.eta.service;
+
+import com.dpd.uk.common.model.Parcel;
+import com.dpd.uk.eta.model.ETACalculation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rolling 30-day delivery-time summaries per (postcode district pair, parcel type, hour of week),
+ * maintained incrementally from new calculations so lookups never aggregate in Mongo.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HistoricalRollupService {
+    
+    static final int WINDOW_DAYS = 30;
+    private static final int ALL_HOURS = -1;
+    private static final int PAGE_SIZE = 5000;
+    
+    private final MongoTemplate mongoTemplate;
+    
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    // Calculation id -> calculatedAt of the version already rolled up, for documents inside the rescan window
+    private final Map<String, LocalDateTime> counted = new HashMap<>();
+    // Start-up warm-up and the schedule both refresh; overlapping scans would count a page twice
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile LocalDateTime watermark = LocalDateTime.now().minusDays(WINDOW_DAYS);
+    
+    @Value("${eta.history.min-samples-per-hour:5}")
+    private long minSamplesPerHour;
+    
+    @Value("${eta.history.settle-seconds:60}")
+    private long settleSeconds;
+    
+    @Value("${eta.history.late-seconds:600}")
+    private long lateSeconds;
+    
+    /**
+     * Summary for the lane at the given time; falls back to all hours of the week when the hour is sparse.
+     */
+    public Optional<LaneSummary> lookup(String originPostcode, String destinationPostcode,
+                                        Parcel.ParcelType type, LocalDateTime at) {
+        long today = at.toLocalDate().toEpochDay();
+        LaneSummary hourly = summary(laneKey(originPostcode, destinationPostcode, type, hourOfWeek(at)), today);
+        if (hourly != null && hourly.sampleSize() >= minSamplesPerHour) {
+            return Optional.of(hourly);
+        }
+        return Optional.ofNullable(summary(laneKey(originPostcode, destinationPostcode, type, ALL_HOURS), today));
+    }
+    
+    @Scheduled(fixedDelayString = "${eta.history.refresh-interval-ms:60000}")
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            refreshRollups();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+    
+    private void refreshRollups() {
+        // Calculations reach Mongo through write-behind, so leave recent ones until they have settled,
+        // and rescan a trailing window for flushes that landed late; ids already counted are skipped
+        LocalDateTime upTo = LocalDateTime.now().minusSeconds(settleSeconds);
+        LocalDateTime from = watermark.minusSeconds(lateSeconds);
+        counted.values().removeIf(calculatedAt -> calculatedAt.isBefore(from));
+        int scanned = 0;
+        
+        try {
+            // Page on (calculatedAt, _id) so documents sharing a timestamp across a page boundary are not skipped
+            Criteria range = Criteria.where("calculatedAt").gte(from).lte(upTo);
+            while (true) {
+                Query query = Query.query(range)
+                    .with(Sort.by(Sort.Direction.ASC, "calculatedAt", "id"))
+                    .limit(PAGE_SIZE);
+                query.fields().include("origin.postcode", "destination.postcode", "parcelType",
+                    "calculatedAt", "estimatedMinutes");
+                
+                List<ETACalculation> page = mongoTemplate.find(query, ETACalculation.class);
+                for (ETACalculation calculation : page) {
+                    if (!calculation.getCalculatedAt().equals(counted.put(calculation.getId(), calculation.getCalculatedAt()))) {
+                        record(calculation);
+                        scanned++;
+                    }
+                }
+                if (!page.isEmpty()) {
+                    ETACalculation last = page.get(page.size() - 1);
+                    if (last.getCalculatedAt().isAfter(watermark)) {
+                        watermark = last.getCalculatedAt();
+                    }
+                    range = new Criteria().andOperator(
+                        Criteria.where("calculatedAt").lte(upTo),
+                        new Criteria().orOperator(
+                            Criteria.where("calculatedAt").gt(last.getCalculatedAt()),
+                            Criteria.where("calculatedAt").is(last.getCalculatedAt()).and("id").gt(last.getId())));
+                }
+                if (page.size() < PAGE_SIZE) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to refresh historical rollups at watermark {}", watermark, e);
+        }
+        
+        long oldestDay = LocalDateTime.now().toLocalDate().toEpochDay() - WINDOW_DAYS;
+        lanes.values().removeIf(lane -> lane.latestDay() < oldestDay);
+        
+        if (scanned > 0) {
+            log.debug("Rolled up {} calculations into {} lanes", scanned, lanes.size());
+        }
+    }
+    
+    private void record(ETACalculation calculation) {
+        if (calculation.getEstimatedMinutes() == null || calculation.getCalculatedAt() == null
+                || calculation.getOrigin() == null || calculation.getDestination() == null) {
+            return;
+        }
+        String origin = calculation.getOrigin().getPostcode();
+        String destination = calculation.getDestination().getPostcode();
+        long day = calculation.getCalculatedAt().toLocalDate().toEpochDay();
+        double minutes = calculation.getEstimatedMinutes();
+        
+        lane(laneKey(origin, destination, calculation.getParcelType(), hourOfWeek(calculation.getCalculatedAt())))
+            .add(day, minutes);
+        lane(laneKey(origin, destination, calculation.getParcelType(), ALL_HOURS)).add(day, minutes);
+    }
+    
+    private Lane lane(String key) {
+        return lanes.computeIfAbsent(key, k -> new Lane());
+    }
+    
+    private LaneSummary summary(String key, long today) {
+        Lane lane = lanes.get(key);
+        return lane != null ? lane.summarize(today) : null;
+    }
+    
+    static String laneKey(String originPostcode, String destinationPostcode, Parcel.ParcelType type, int hourOfWeek) {
+        return district(originPostcode) + ">" + district(destinationPostcode) + "|" + type + "|" + hourOfWeek;
+    }
+    
+    static int hourOfWeek(LocalDateTime at) {
+        return (at.getDayOfWeek().getValue() - 1) * 24 + at.getHour();
+    }
+    
+    /**
+     * Outward code of a UK postcode, e.g. "SW1A 1AA" -> "SW1A".
+     */
+    static String district(String postcode) {
+        if (postcode == null) {
+            return "?";
+        }
+        String normalized = postcode.trim().toUpperCase(Locale.ROOT);
+        int space = normalized.indexOf(' ');
+        if (space > 0) {
+            return normalized.substring(0, space);
+        }
+        return normalized.length() > 3 ? normalized.substring(0, normalized.length() - 3) : normalized;
+    }
+    
+    public record LaneSummary(double avgMinutes, double minMinutes, double maxMinutes, long sampleSize) {
+    }
+    
+    /**
+     * One slot per day over the window, reused as days roll over.
+     */
+    private static final class Lane {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] days = new long[WINDOW_DAYS];
+        private final long[] counts = new long[WINDOW_DAYS];
+        private final double[] sums = new double[WINDOW_DAYS];
+        private final double[] mins = new double[WINDOW_DAYS];
+        private final double[] maxs = new double[WINDOW_DAYS];
+        
+        void add(long day, double minutes) {
+            lock.lock();
+            try {
+                int slot = (int) Math.floorMod(day, (long) WINDOW_DAYS);
+                if (days[slot] != day) {
+                    days[slot] = day;
+                    counts[slot] = 0;
+                    sums[slot] = 0;
+                    mins[slot] = Double.MAX_VALUE;
+                    maxs[slot] = -Double.MAX_VALUE;
+                }
+                counts[slot]++;
+                sums[slot] += minutes;
+                mins[slot] = Math.min(mins[slot], minutes);
+                maxs[slot] = Math.max(maxs[slot], minutes);
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        LaneSummary summarize(long today) {
+            lock.lock();
+            try {
+                long count = 0;
+                double sum = 0;
+                double min = Double.MAX_VALUE;
+                double max = -Double.MAX_VALUE;
+                for (int slot = 0; slot < WINDOW_DAYS; slot++) {
+                    if (counts[slot] > 0 && today - days[slot] < WINDOW_DAYS) {
+                        count += counts[slot];
+                        sum += sums[slot];
+                        min = Math.min(min, mins[slot]);
+                        max = Math.max(max, maxs[slot]);
+                    }
+                }
+                return count > 0 ? new LaneSummary(sum / count, min, max, count) : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        long latestDay() {
+            lock.lock();
+            try {
+                long latest = Long.MIN_VALUE;
+                for (int slot = 0; slot < WINDOW_DAYS; slot++) {
+                    if (counts[slot] > 0) {
+                        latest = Math.max(latest, days[slot]);
+                    }
+                }
+                return latest;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.dpd.uk.eta.service;
+
+import com.dpd.uk.common.model.Address;
+import com.dpd.uk.common.model.ETA;
+import com.dpd.uk.common.model.Parcel;
+import com.dpd.uk.common.model.Route;
+import com.dpd.uk.eta.model.DepotConstraints;
+import com.dpd.uk.eta.model.ETACalculation;
+import com.dpd.uk.eta.model.ETAFactor;
+import com.dpd.uk.eta.model.StopProgress;
+import com.dpd.uk.eta.model.TrafficFactors;
+import com.dpd.uk.eta.model.VehicleFactors;
+import com.dpd.uk.eta.store.ActiveETAStore;
+import com.dpd.uk.eta.util.GeoUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Computes ETAs for all parcels on a driver's route with one forward pass over the ordered stops.
+ * The cumulative arrival offsets are kept per route, so progress at stop k only re-projects stops k..n.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RouteETAService {
+    
+    private static final double DEFAULT_LEG_KM = 2.0; // stops without coordinates
+    private static final String ROUTE_VERSION = "route-projection";
+    
+    private final ActiveETAStore activeETAStore;
+    private final ETACalculationService etaCalculationService;
+    private final TrafficDataService trafficDataService;
+    private final DepotConstraintsService depotConstraintsService;
+    private final VehicleTelematicsService vehicleTelematicsService;
+    private final ETANotificationService etaNotificationService;
+    
+    private final Map<String, RouteState> routes = new ConcurrentHashMap<>();
+    
+    @Value("${eta.route.average-speed-kmh:30}")
+    private double averageSpeedKmh;
+    
+    @Value("${eta.route.service-minutes-per-stop:3}")
+    private double serviceMinutesPerStop;
+    
+    @Value("${eta.calculation.max-prediction-hours:24}")
+    private long maxPredictionHours;
+    
+    public List<ETA> calculateRouteETAs(Route route) {
+        if (route.getRouteId() == null || route.getStops() == null || route.getStops().isEmpty()) {
+            throw new IllegalArgumentException("Route with stops is required");
+        }
+        log.info("Calculating route ETAs for route: {} ({} stops)", route.getRouteId(), route.getStops().size());
+        
+        evictExpired();
+        
+        // Route-wide factors are fetched once instead of once per parcel
+        List<Route.RouteStop> stops = route.getStops().stream()
+            .sorted(Comparator.comparing(Route.RouteStop::getSequence, Comparator.nullsLast(Comparator.naturalOrder())))
+            .toList();
+        TrafficFactors trafficFactors = trafficDataService.getTrafficFactors(corridor(route, stops));
+        DepotConstraints depotConstraints = depotConstraintsService.getDepotConstraints(route.getDepotId());
+        VehicleFactors vehicleFactors = vehicleTelematicsService.getVehicleFactors(route.getVehicleId());
+        
+        RouteState state = new RouteState(route, stops, startTime(route), trafficFactors, depotConstraints, vehicleFactors,
+            ETAFactor.multiplierOf(trafficFactors) * ETAFactor.multiplierOf(depotConstraints)
+                * ETAFactor.multiplierOf(vehicleFactors));
+        
+        state.lock.lock();
+        try {
+            routes.put(route.getRouteId(), state);
+            project(state, 0);
+            return persist(state, 0);
+        } finally {
+            state.lock.unlock();
+        }
+    }
+    
+    /**
+     * Applies progress at one stop and re-projects that stop and everything after it.
+     */
+    public List<ETA> updateStop(String routeId, int sequence, StopProgress progress) {
+        RouteState state = routes.get(routeId);
+        if (state == null) {
+            throw new IllegalArgumentException("Route not tracked: " + routeId);
+        }
+        
+        state.lock.lock();
+        try {
+            int index = state.indexOf(sequence);
+            if (index < 0) {
+                throw new IllegalArgumentException("Stop " + sequence + " not found on route: " + routeId);
+            }
+            
+            Route.RouteStop stop = state.stops.get(index);
+            if (progress.getStatus() != null) {
+                stop.setStatus(progress.getStatus());
+                if (progress.getStatus() == Route.RouteStop.StopStatus.SKIPPED) {
+                    state.serviceMinutes[index] = 0;
+                }
+            }
+            if (progress.getDelayMinutes() != null) {
+                state.delayMinutes[index] += progress.getDelayMinutes();
+            }
+            if (progress.getActualArrivalMinutes() != null) {
+                stop.setActualArrivalMinutes(progress.getActualArrivalMinutes());
+                state.arrivalMinutes[index] = progress.getActualArrivalMinutes();
+                state.pinned[index] = true;
+            }
+            
+            state.lastTouched = System.currentTimeMillis();
+            project(state, index);
+            return persist(state, index);
+        } finally {
+            state.lock.unlock();
+        }
+    }
+    
+    public boolean isTracked(String routeId) {
+        return routeId != null && routes.containsKey(routeId);
+    }
+    
+    private void project(RouteState state, int from) {
+        int n = state.stops.size();
+        for (int i = from; i < n; i++) {
+            int previous = state.previousVisited(i);
+            if (previous < 0) {
+                state.cumulativeKm[i] = 0;
+                if (!state.pinned[i]) {
+                    state.arrivalMinutes[i] = 0;
+                }
+            } else {
+                double legKm = legKm(state.stops.get(previous).getAddress(), state.stops.get(i).getAddress());
+                state.cumulativeKm[i] = state.cumulativeKm[previous] + legKm;
+                if (!state.pinned[i]) {
+                    double departure = state.arrivalMinutes[previous] + state.serviceMinutes[previous] + state.delayMinutes[previous];
+                    state.arrivalMinutes[i] = departure + legKm / averageSpeedKmh * 60.0 * state.multiplier;
+                }
+            }
+            state.stops.get(i).setEstimatedArrivalMinutes((int) Math.round(state.arrivalMinutes[i]));
+        }
+    }
+    
+    private List<ETA> persist(RouteState state, int from) {
+        List<Integer> pending = new ArrayList<>();
+        for (int i = from; i < state.stops.size(); i++) {
+            Route.RouteStop stop = state.stops.get(i);
+            if (stop.getParcelId() != null && isOpen(stop)) {
+                pending.add(i);
+            }
+        }
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<String, ETACalculation> existing = activeETAStore.getAll(
+            pending.stream().map(i -> state.stops.get(i).getParcelId()).toList());
+        
+        LocalDateTime now = LocalDateTime.now();
+        Address origin = state.stops.get(0).getAddress();
+        List<ETACalculation> calculations = new ArrayList<>(pending.size());
+        
+        for (int index : pending) {
+            Route.RouteStop stop = state.stops.get(index);
+            LocalDateTime arrival = state.startTime.plusSeconds(Math.round(state.arrivalMinutes[index] * 60));
+            
+            ETACalculation stored = existing.get(stop.getParcelId());
+            ETACalculation calculation = stored != null ? stored.toBuilder().build() : ETACalculation.builder()
+                .parcelId(stop.getParcelId())
+                .calculatedAt(now)
+                .isActive(true)
+                .build();
+            calculation.setRouteId(state.route.getRouteId());
+            calculation.setDepotId(state.route.getDepotId());
+            calculation.setDriverId(state.route.getDriverId());
+            calculation.setVehicleId(state.route.getVehicleId());
+            calculation.setOrigin(origin);
+            calculation.setDestination(stop.getAddress());
+            calculation.setDistanceKm(state.cumulativeKm[index]);
+            calculation.setTrafficFactors(state.trafficFactors);
+            calculation.setDepotConstraints(state.depotConstraints);
+            calculation.setVehicleFactors(state.vehicleFactors);
+            calculation.setEstimatedArrival(arrival);
+            calculation.setEstimatedMinutes((int) Math.max(0, Duration.between(now, arrival).toMinutes()));
+            calculation.setLastUpdated(now);
+            calculation.setCalculationVersion(ROUTE_VERSION);
+            etaCalculationService.applyArrivalWindow(calculation);
+            calculation.setStatus(etaCalculationService.statusFor(calculation));
+            calculations.add(calculation);
+        }
+        
+        activeETAStore.putAll(calculations);
+        
+        List<ETA> etas = calculations.stream().map(etaCalculationService::convertToETA).toList();
+        etas.forEach(etaNotificationService::notifyETAUpdate);
+        
+        log.debug("Projected {} route ETAs for route: {} from stop index {}", etas.size(), state.route.getRouteId(), from);
+        return etas;
+    }
+    
+    private boolean isOpen(Route.RouteStop stop) {
+        return stop.getStatus() == null
+            || stop.getStatus() == Route.RouteStop.StopStatus.PENDING
+            || stop.getStatus() == Route.RouteStop.StopStatus.IN_PROGRESS;
+    }
+    
+    private Parcel corridor(Route route, List<Route.RouteStop> stops) {
+        // Traffic is looked up once for the route's first-to-last corridor
+        return Parcel.builder()
+            .parcelId(route.getRouteId())
+            .depotId(route.getDepotId())
+            .vehicleId(route.getVehicleId())
+            .origin(stops.get(0).getAddress())
+            .destination(stops.get(stops.size() - 1).getAddress())
+            .build();
+    }
+    
+    private LocalDateTime startTime(Route route) {
+        if (route.getActualStartTime() != null) {
+            return route.getActualStartTime();
+        }
+        return route.getPlannedStartTime() != null ? route.getPlannedStartTime() : LocalDateTime.now();
+    }
+    
+    private double legKm(Address from, Address to) {
+        if (from == null || to == null || from.getLatitude() == null || from.getLongitude() == null
+                || to.getLatitude() == null || to.getLongitude() == null) {
+            return DEFAULT_LEG_KM;
+        }
+        return GeoUtils.haversineKm(from.getLatitude(), from.getLongitude(), to.getLatitude(), to.getLongitude());
+    }
+    
+    private void evictExpired() {
+        long cutoff = System.currentTimeMillis() - Duration.ofHours(maxPredictionHours).toMillis();
+        routes.values().removeIf(state -> state.lastTouched < cutoff);
+    }
+    
+    private class RouteState {
+        final ReentrantLock lock = new ReentrantLock();
+        final Route route;
+        final List<Route.RouteStop> stops;
+        final LocalDateTime startTime;
+        final TrafficFactors trafficFactors;
+        final DepotConstraints depotConstraints;
+        final VehicleFactors vehicleFactors;
+        final double multiplier;
+        
+        final double[] arrivalMinutes;
+        final double[] serviceMinutes;
+        final double[] delayMinutes;
+        final double[] cumulativeKm;
+        final boolean[] pinned;
+        volatile long lastTouched = System.currentTimeMillis();
+        
+        RouteState(Route route, List<Route.RouteStop> stops, LocalDateTime startTime,
+                   TrafficFactors trafficFactors, DepotConstraints depotConstraints,
+                   VehicleFactors vehicleFactors, double multiplier) {
+            this.route = route;
+            this.stops = stops;
+            this.startTime = startTime;
+            this.trafficFactors = trafficFactors;
+            this.depotConstraints = depotConstraints;
+            this.vehicleFactors = vehicleFactors;
+            this.multiplier = multiplier;
+            
+            int n = stops.size();
+            this.arrivalMinutes = new double[n];
+            this.serviceMinutes = new double[n];
+            this.delayMinutes = new double[n];
+            this.cumulativeKm = new double[n];
+            this.pinned = new boolean[n];
+            
+            for (int i = 0; i < n; i++) {
+                Route.RouteStop stop = stops.get(i);
+                boolean depot = stop.getType() == Route.RouteStop.StopType.DEPOT;
+                boolean skipped = stop.getStatus() == Route.RouteStop.StopStatus.SKIPPED;
+                serviceMinutes[i] = depot || skipped ? 0 : serviceMinutesPerStop;
+                if (stop.getActualArrivalMinutes() != null) {
+                    arrivalMinutes[i] = stop.getActualArrivalMinutes();
+                    pinned[i] = true;
+                }
+            }
+        }
+        
+        int indexOf(int sequence) {
+            for (int i = 0; i < stops.size(); i++) {
+                if (Objects.equals(stops.get(i).getSequence(), sequence)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        int previousVisited(int index) {
+            // Skipped stops are driven past, so the leg starts from the last stop actually visited
+            for (int i = index - 1; i >= 0; i--) {
+                if (stops.get(i).getStatus() != Route.RouteStop.StopStatus.SKIPPED) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
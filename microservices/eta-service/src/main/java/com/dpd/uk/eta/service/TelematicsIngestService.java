@@ -0,0 +1,76 @@
+package com.dpd.uk.eta.service;
+
+import com.dpd.uk.eta.model.ETACalculation;
+import com.dpd.uk.eta.model.TelematicsPing;
+import com.dpd.uk.eta.store.ActiveETAStore;
+import com.dpd.uk.eta.telematics.VehicleTrack;
+import com.dpd.uk.eta.telematics.VehicleTrackRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Ingests batches of telematics pings and refreshes ETAs for the vehicles that moved,
+ * at most once per refresh interval per vehicle.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TelematicsIngestService {
+    
+    private final VehicleTrackRegistry vehicleTrackRegistry;
+    private final ActiveETAStore activeETAStore;
+    private final ETACalculationService etaCalculationService;
+    private final RouteETAService routeETAService;
+    private final ExecutorService etaFactorExecutor;
+    
+    @Value("${eta.calculation.refresh-interval-seconds:30}")
+    private long refreshIntervalSeconds;
+    
+    public void ingest(List<TelematicsPing> pings) {
+        Set<String> moved = new HashSet<>();
+        for (TelematicsPing ping : pings) {
+            if (ping.getVehicleId() == null) {
+                continue;
+            }
+            if (vehicleTrackRegistry.track(ping.getVehicleId())
+                    .add(ping.getLatitude(), ping.getLongitude(), ping.getSpeedKmh(), ping.getTimestamp())) {
+                moved.add(ping.getVehicleId());
+            }
+        }
+        
+        long now = System.currentTimeMillis();
+        long intervalMillis = refreshIntervalSeconds * 1000;
+        for (String vehicleId : moved) {
+            VehicleTrack track = vehicleTrackRegistry.track(vehicleId);
+            if (track.tryStartRecompute(now, intervalMillis)) {
+                // Off the consumer thread so the next poll is not held up by recomputation
+                etaFactorExecutor.execute(() -> refreshVehicle(vehicleId, track));
+            }
+        }
+        
+        log.debug("Ingested {} telematics pings for {} vehicles", pings.size(), moved.size());
+    }
+    
+    private void refreshVehicle(String vehicleId, VehicleTrack track) {
+        try {
+            VehicleTrack.Position position = track.position();
+            // Parcels on a tracked route are projected by the route pass from stop progress
+            List<ETACalculation> open = activeETAStore.getByVehicle(vehicleId).stream()
+                .filter(calculation -> !routeETAService.isTracked(calculation.getRouteId()))
+                .toList();
+            
+            if (!open.isEmpty()) {
+                etaCalculationService.refreshFromPosition(open, position.latitude(), position.longitude());
+            }
+        } catch (Exception e) {
+            log.error("Failed to refresh ETAs for vehicle: {}", vehicleId, e);
+        }
+    }
+}
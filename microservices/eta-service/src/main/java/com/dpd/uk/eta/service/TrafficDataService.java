@@ -1,93 +1,196 @@
 package com.dpd.uk.eta.service;
 
+import com.dpd.uk.common.model.Address;
 import com.dpd.uk.common.model.Parcel;
+import com.dpd.uk.common.outbound.OutboundClientRegistry;
+import com.dpd.uk.eta.model.TrafficFactors;
+import com.dpd.uk.eta.util.GeoUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 
-import java.time.Duration;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Traffic factors cached per (origin geohash cell, destination geohash cell, time bucket). Concurrent misses
+ * for the same key share one API call, and hot keys are loaded for the next bucket before it starts.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class TrafficDataService {
     
-    private final WebClient.Builder webClientBuilder;
+    private final OutboundClientRegistry outboundClientRegistry;
+    private final ExecutorService etaFactorExecutor;
+    
+    private final Map<TrafficKey, CacheEntry> cache = new ConcurrentHashMap<>();
     
     @Value("${external.traffic.api-key}")
     private String trafficApiKey;
     
-    @Value("${external.traffic.base-url}")
-    private String trafficBaseUrl;
+    @Value("${eta.traffic.geohash-precision:6}")
+    private int geohashPrecision;
     
-    @Value("${external.traffic.timeout}")
-    private int timeout;
+    @Value("${eta.traffic.bucket-minutes:15}")
+    private long bucketMinutes;
     
-    @Cacheable(value = "traffic-data", key = "#parcel.origin.latitude + '_' + #parcel.origin.longitude + '_' + #parcel.destination.latitude + '_' + #parcel.destination.longitude")
-    public Map<String, Object> getTrafficFactors(Parcel parcel) {
-        try {
-            log.debug("Fetching traffic data for route from {} to {}", 
-                parcel.getOrigin().getPostcode(), parcel.getDestination().getPostcode());
-            
-            WebClient webClient = webClientBuilder
-                .baseUrl(trafficBaseUrl)
-                .build();
-            
-            // In a real implementation, this would call an actual traffic API
-            // For now, returning mock data
-            Map<String, Object> trafficData = webClient
-                .get()
-                .uri(uriBuilder -> uriBuilder
-                    .path("/traffic/route")
-                    .queryParam("origin", parcel.getOrigin().getLatitude() + "," + parcel.getOrigin().getLongitude())
-                    .queryParam("destination", parcel.getDestination().getLatitude() + "," + parcel.getDestination().getLongitude())
-                    .queryParam("apiKey", trafficApiKey)
-                    .build())
-                .retrieve()
-                .bodyToMono(Map.class)
-                .timeout(Duration.ofMillis(timeout))
-                .onErrorReturn(createFallbackTrafficData())
-                .block();
-            
-            return processTrafficData(trafficData);
-            
-        } catch (Exception e) {
-            log.warn("Failed to fetch traffic data for parcel: {}", parcel.getParcelId(), e);
-            return createFallbackTrafficData();
+    @Value("${eta.traffic.refresh-ahead-seconds:90}")
+    private long refreshAheadSeconds;
+    
+    @Value("${eta.traffic.hot-threshold:3}")
+    private int hotThreshold;
+    
+    public TrafficFactors getTrafficFactors(Parcel parcel) {
+        TrafficKey key = new TrafficKey(cell(parcel.getOrigin()), cell(parcel.getDestination()),
+            bucketOf(System.currentTimeMillis()));
+        CacheEntry entry = entryFor(key, parcel.getOrigin(), parcel.getDestination());
+        entry.hits.incrementAndGet();
+        return entry.factors.join();
+    }
+    
+    /**
+     * Origin/destination cell pair the parcel's traffic factors are cached under.
+     */
+    public String cellKey(Parcel parcel) {
+        return cellKey(parcel.getOrigin(), parcel.getDestination());
+    }
+    
+    public String cellKey(Address origin, Address destination) {
+        return cell(origin) + ">" + cell(destination);
+    }
+    
+    /**
+     * Loads the cell pair for the current bucket without counting it as a hit.
+     */
+    public CompletableFuture<TrafficFactors> prefetch(Address origin, Address destination) {
+        TrafficKey key = new TrafficKey(cell(origin), cell(destination), bucketOf(System.currentTimeMillis()));
+        return entryFor(key, origin, destination).factors.copy();
+    }
+    
+    @Scheduled(fixedDelayString = "${eta.traffic.refresh-interval-ms:30000}")
+    public void refreshHotCells() {
+        long now = System.currentTimeMillis();
+        long bucket = bucketOf(now);
+        cache.keySet().removeIf(key -> key.bucket() < bucket);
+        
+        long nextBucketStart = (bucket + 1) * bucketMillis();
+        if (nextBucketStart - now > refreshAheadSeconds * 1000) {
+            return;
+        }
+        
+        int warmed = 0;
+        for (Map.Entry<TrafficKey, CacheEntry> cached : cache.entrySet()) {
+            TrafficKey key = cached.getKey();
+            CacheEntry entry = cached.getValue();
+            if (key.bucket() == bucket && entry.hits.get() >= hotThreshold) {
+                TrafficKey next = new TrafficKey(key.originCell(), key.destinationCell(), bucket + 1);
+                if (!cache.containsKey(next)) {
+                    entryFor(next, entry.origin, entry.destination);
+                    warmed++;
+                }
+            }
+        }
+        
+        if (warmed > 0) {
+            log.debug("Pre-loaded traffic factors for {} hot cell pairs ({} cached)", warmed, cache.size());
         }
     }
     
-    private Map<String, Object> processTrafficData(Map<String, Object> rawData) {
-        Map<String, Object> factors = new HashMap<>();
+    private CacheEntry entryFor(TrafficKey key, Address origin, Address destination) {
+        CacheEntry created = new CacheEntry(origin, destination);
+        CacheEntry existing = cache.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
         
-        if (rawData != null && rawData.containsKey("routes")) {
-            // Process traffic data to extract relevant factors
-            factors.put("multiplier", 1.2); // Example: 20% delay due to traffic
-            factors.put("congestionLevel", "MODERATE");
-            factors.put("incidents", 2);
-            factors.put("lastUpdated", System.currentTimeMillis());
-        } else {
-            factors.put("multiplier", 1.0);
-            factors.put("congestionLevel", "LIGHT");
-            factors.put("incidents", 0);
-            factors.put("lastUpdated", System.currentTimeMillis());
+        // Only the caller that inserted the entry loads it; everyone else waits on the same future
+        try {
+            etaFactorExecutor.execute(() -> load(key, created));
+        } catch (RejectedExecutionException e) {
+            log.warn("Traffic lookup rejected for {}, using fallback factors", key, e);
+            complete(key, created, TrafficFactors.fallbackFactors());
         }
+        return created;
+    }
+    
+    private void load(TrafficKey key, CacheEntry entry) {
+        TrafficFactors factors;
+        try {
+            factors = fetchTrafficFactors(entry.origin, entry.destination);
+        } catch (RuntimeException e) {
+            log.warn("Failed to fetch traffic data for {}, using fallback factors", key, e);
+            factors = TrafficFactors.fallbackFactors();
+        }
+        complete(key, entry, factors);
+    }
+    
+    private void complete(TrafficKey key, CacheEntry entry, TrafficFactors factors) {
+        if (factors.fallback()) {
+            // Don't pin a fallback for the whole bucket; the next request retries
+            cache.remove(key, entry);
+        }
+        entry.factors.complete(factors);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private TrafficFactors fetchTrafficFactors(Address origin, Address destination) {
+        log.debug("Fetching traffic data for route from {} to {}", origin.getPostcode(), destination.getPostcode());
         
-        return factors;
+        // In a real implementation, this would call an actual traffic API
+        Map<String, Object> trafficData = outboundClientRegistry.client("traffic").get(uriBuilder -> uriBuilder
+                .path("/traffic/route")
+                .queryParam("origin", origin.getLatitude() + "," + origin.getLongitude())
+                .queryParam("destination", destination.getLatitude() + "," + destination.getLongitude())
+                .queryParam("apiKey", trafficApiKey)
+                .build(),
+            Map.class, () -> null);
+        
+        return trafficData != null ? processTrafficData(trafficData) : TrafficFactors.fallbackFactors();
     }
     
-    private Map<String, Object> createFallbackTrafficData() {
-        Map<String, Object> factors = new HashMap<>();
-        factors.put("multiplier", 1.0);
-        factors.put("congestionLevel", "UNKNOWN");
-        factors.put("incidents", 0);
-        factors.put("lastUpdated", System.currentTimeMillis());
-        factors.put("fallback", true);
-        return factors;
+    private String cell(Address address) {
+        if (address.getLatitude() == null || address.getLongitude() == null) {
+            return Objects.toString(address.getPostcode());
+        }
+        return GeoUtils.geohash(address.getLatitude(), address.getLongitude(), geohashPrecision);
+    }
+    
+    private long bucketOf(long epochMillis) {
+        return epochMillis / bucketMillis();
+    }
+    
+    private long bucketMillis() {
+        return bucketMinutes * 60_000;
+    }
+    
+    private TrafficFactors processTrafficData(Map<String, Object> rawData) {
+        // Process traffic data to extract relevant factors
+        if (rawData.containsKey("routes")) {
+            return new TrafficFactors(1.2, "MODERATE", 2, System.currentTimeMillis(), false); // Example: 20% delay due to traffic
+        }
+        return new TrafficFactors(1.0, "LIGHT", 0, System.currentTimeMillis(), false);
+    }
+    
+    private record TrafficKey(String originCell, String destinationCell, long bucket) {
+    }
+    
+    private static final class CacheEntry {
+        private final Address origin;
+        private final Address destination;
+        private final CompletableFuture<TrafficFactors> factors = new CompletableFuture<>();
+        private final AtomicInteger hits = new AtomicInteger();
+        
+        CacheEntry(Address origin, Address destination) {
+            this.origin = origin;
+            this.destination = destination;
+        }
     }
 }
@@ -1,27 +1,36 @@
 package com.dpd.uk.eta.service;
 
+import com.dpd.uk.eta.model.VehicleFactors;
+import com.dpd.uk.eta.telematics.VehicleTrack;
+import com.dpd.uk.eta.telematics.VehicleTrackRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Optional;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class VehicleTelematicsService {
     
-    @Cacheable(value = "vehicle-telematics", key = "#vehicleId")
-    public Map<String, Object> getVehicleFactors(String vehicleId) {
+    private static final double MIN_MOVING_SPEED_KMH = 5.0;
+    private static final VehicleProfile DEFAULT_PROFILE = new VehicleProfile("UNKNOWN", 1.0, 45, 0.85, 14);
+    
+    private final VehicleTrackRegistry vehicleTrackRegistry;
+    
+    @Value("${eta.route.average-speed-kmh:30}")
+    private double baselineSpeedKmh;
+    
+    public VehicleFactors getVehicleFactors(String vehicleId) {
         try {
             log.debug("Fetching vehicle telematics for vehicle: {}", vehicleId);
             
-            // In a real implementation, this would query vehicle telematics systems
-            // For now, returning mock data based on vehicle characteristics
-            return createVehicleFactors(vehicleId);
+            // Static profile by vehicle type, overlaid with the live telematics feed when the vehicle is reporting
+            return createVehicleFactors(vehicleId, vehicleTrackRegistry.liveTrack(vehicleId));
             
         } catch (Exception e) {
             log.warn("Failed to fetch vehicle telematics for vehicle: {}", vehicleId, e);
@@ -29,102 +38,65 @@ public class VehicleTelematicsService {
         }
     }
     
-    private Map<String, Object> createVehicleFactors(String vehicleId) {
-        Map<String, Object> factors = new HashMap<>();
+    private VehicleFactors createVehicleFactors(String vehicleId, Optional<VehicleTrack> liveTrack) {
+        VehicleProfile profile = profileFor(vehicleId);
+        double multiplier = profile.multiplier();
         
-        // Mock vehicle-specific factors
-        if (vehicleId != null) {
-            if (vehicleId.startsWith("VAN_")) {
-                factors.put("multiplier", 1.0); // Vans are efficient for urban delivery
-                factors.put("vehicleType", "VAN");
-                factors.put("maxSpeed", 50); // Urban speed limit
-                factors.put("fuelEfficiency", 0.8);
-                factors.put("reliability", 0.95);
-                factors.put("lastMaintenance", LocalDateTime.now().minusDays(7));
-                factors.put("mileage", 50000);
-            } else if (vehicleId.startsWith("TRUCK_")) {
-                factors.put("multiplier", 1.1); // Trucks are slower but carry more
-                factors.put("vehicleType", "TRUCK");
-                factors.put("maxSpeed", 40); // Lower speed for larger vehicles
-                factors.put("fuelEfficiency", 0.6);
-                factors.put("reliability", 0.90);
-                factors.put("lastMaintenance", LocalDateTime.now().minusDays(3));
-                factors.put("mileage", 75000);
-            } else if (vehicleId.startsWith("BIKE_")) {
-                factors.put("multiplier", 0.9); // Bikes are fastest for short distances
-                factors.put("vehicleType", "BIKE");
-                factors.put("maxSpeed", 25); // Bike speed
-                factors.put("fuelEfficiency", 1.0); // Electric bikes
-                factors.put("reliability", 0.98);
-                factors.put("lastMaintenance", LocalDateTime.now().minusDays(1));
-                factors.put("mileage", 10000);
-            } else {
-                // Default vehicle
-                factors.put("multiplier", 1.0);
-                factors.put("vehicleType", "UNKNOWN");
-                factors.put("maxSpeed", 45);
-                factors.put("fuelEfficiency", 0.7);
-                factors.put("reliability", 0.85);
-                factors.put("lastMaintenance", LocalDateTime.now().minusDays(14));
-                factors.put("mileage", 60000);
-            }
-        } else {
-            factors.put("multiplier", 1.0);
-            factors.put("vehicleType", "UNKNOWN");
-            factors.put("maxSpeed", 45);
-            factors.put("fuelEfficiency", 0.7);
-            factors.put("reliability", 0.85);
-            factors.put("lastMaintenance", LocalDateTime.now().minusDays(14));
-            factors.put("mileage", 60000);
+        // Calculate maintenance factor
+        LocalDateTime lastMaintenance = LocalDateTime.now().minusDays(profile.daysSinceMaintenance());
+        long daysSinceMaintenance = Duration.between(lastMaintenance, LocalDateTime.now()).toDays();
+        boolean maintenanceOverdue = daysSinceMaintenance > 30;
+        if (maintenanceOverdue) {
+            multiplier *= 1.1; // 10% delay for overdue maintenance
         }
         
-        // Add real-time factors
-        factors.put("currentLocation", "DEPOT");
-        factors.put("batteryLevel", 85); // For electric vehicles
-        factors.put("fuelLevel", 75); // For fuel vehicles
-        factors.put("isInUse", false);
-        factors.put("driverAssigned", false);
-        
-        // Calculate maintenance factor
-        LocalDateTime lastMaintenance = (LocalDateTime) factors.get("lastMaintenance");
-        long daysSinceMaintenance = java.time.Duration.between(lastMaintenance, LocalDateTime.now()).toDays();
+        // Calculate reliability factor
+        if (profile.reliability() < 0.8) {
+            multiplier *= 1.2; // 20% delay for unreliable vehicles
+        }
         
-        if (daysSinceMaintenance > 30) {
-            double currentMultiplier = (Double) factors.get("multiplier");
-            factors.put("multiplier", currentMultiplier * 1.1); // 10% delay for overdue maintenance
-            factors.put("maintenanceOverdue", true);
-        } else {
-            factors.put("maintenanceOverdue", false);
+        if (liveTrack.isEmpty()) {
+            return new VehicleFactors(multiplier, profile.vehicleType(), profile.maxSpeed(), profile.reliability(),
+                maintenanceOverdue, false, null, null, null, null, System.currentTimeMillis(), false);
         }
         
-        // Calculate reliability factor
-        double reliability = (Double) factors.get("reliability");
-        if (reliability < 0.8) {
-            double currentMultiplier = (Double) factors.get("multiplier");
-            factors.put("multiplier", currentMultiplier * 1.2); // 20% delay for unreliable vehicles
+        VehicleTrack track = liveTrack.get();
+        VehicleTrack.Position position = track.position();
+        double speedKmh = track.currentSpeedKmh(vehicleTrackRegistry.speedWindowMillis());
+        
+        // Stationary vehicles are usually at a drop, so only moving speed adjusts the multiplier
+        if (!Double.isNaN(speedKmh) && speedKmh >= MIN_MOVING_SPEED_KMH) {
+            multiplier = Math.max(0.5, Math.min(2.0, baselineSpeedKmh / speedKmh));
         }
         
-        factors.put("lastUpdated", System.currentTimeMillis());
-        return factors;
+        return new VehicleFactors(multiplier, profile.vehicleType(), profile.maxSpeed(), profile.reliability(),
+            maintenanceOverdue, true, position.latitude(), position.longitude(),
+            Double.isNaN(speedKmh) ? null : speedKmh, position.timestamp(), System.currentTimeMillis(), false);
+    }
+    
+    private VehicleProfile profileFor(String vehicleId) {
+        // Mock vehicle-specific factors
+        if (vehicleId == null) {
+            return DEFAULT_PROFILE;
+        }
+        if (vehicleId.startsWith("VAN_")) {
+            return new VehicleProfile("VAN", 1.0, 50, 0.95, 7); // Vans are efficient for urban delivery
+        }
+        if (vehicleId.startsWith("TRUCK_")) {
+            return new VehicleProfile("TRUCK", 1.1, 40, 0.90, 3); // Trucks are slower but carry more
+        }
+        if (vehicleId.startsWith("BIKE_")) {
+            return new VehicleProfile("BIKE", 0.9, 25, 0.98, 1); // Bikes are fastest for short distances
+        }
+        return DEFAULT_PROFILE;
+    }
+    
+    private VehicleFactors createFallbackVehicleFactors() {
+        return new VehicleFactors(1.0, "UNKNOWN", 45, 0.85, false, false, null, null, null, null,
+            System.currentTimeMillis(), true);
     }
     
-    private Map<String, Object> createFallbackVehicleFactors() {
-        Map<String, Object> factors = new HashMap<>();
-        factors.put("multiplier", 1.0);
-        factors.put("vehicleType", "UNKNOWN");
-        factors.put("maxSpeed", 45);
-        factors.put("fuelEfficiency", 0.7);
-        factors.put("reliability", 0.85);
-        factors.put("lastMaintenance", LocalDateTime.now().minusDays(14));
-        factors.put("mileage", 60000);
-        factors.put("currentLocation", "UNKNOWN");
-        factors.put("batteryLevel", 50);
-        factors.put("fuelLevel", 50);
-        factors.put("isInUse", false);
-        factors.put("driverAssigned", false);
-        factors.put("maintenanceOverdue", false);
-        factors.put("lastUpdated", System.currentTimeMillis());
-        factors.put("fallback", true);
-        return factors;
+    private record VehicleProfile(String vehicleType, double multiplier, int maxSpeed, double reliability,
+                                  int daysSinceMaintenance) {
     }
 }
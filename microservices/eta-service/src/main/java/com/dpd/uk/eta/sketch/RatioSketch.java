@@ -0,0 +1,98 @@
+package com.dpd.uk.eta.sketch;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed-memory quantile sketch of positive ratios (actual / predicted duration). Values are counted in
+ * logarithmic buckets with ~2% relative accuracy over [0.1, 10]; outliers clamp to the end buckets.
+ * Sketches with the same layout merge by adding counts.
+ */
+public class RatioSketch {
+    
+    private static final double RELATIVE_ACCURACY = 0.02;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final double MIN_RATIO = 0.1;
+    private static final double MAX_RATIO = 10.0;
+    private static final int MIN_INDEX = index(MIN_RATIO);
+    private static final int BUCKETS = index(MAX_RATIO) - MIN_INDEX + 1;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+    
+    public void add(double ratio) {
+        if (!(ratio > 0) || Double.isInfinite(ratio)) {
+            return;
+        }
+        double clamped = Math.max(MIN_RATIO, Math.min(MAX_RATIO, ratio));
+        lock.lock();
+        try {
+            counts[index(clamped) - MIN_INDEX]++;
+            total++;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public void merge(RatioSketch other) {
+        long[] otherCounts;
+        other.lock.lock();
+        try {
+            otherCounts = other.counts.clone();
+        } finally {
+            other.lock.unlock();
+        }
+        
+        lock.lock();
+        try {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += otherCounts[i];
+                total += otherCounts[i];
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Ratio at quantile {@code q} in [0, 1], or NaN when empty.
+     */
+    public double quantile(double q) {
+        lock.lock();
+        try {
+            if (total == 0) {
+                return Double.NaN;
+            }
+            long rank = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(1, rank)) {
+                    return value(i + MIN_INDEX);
+                }
+            }
+            return MAX_RATIO;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long count() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private static int index(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+    
+    private static double value(int index) {
+        // Midpoint of the bucket (gamma^(i-1), gamma^i]
+        return 2 * Math.pow(GAMMA, index) / (1 + GAMMA);
+    }
+}
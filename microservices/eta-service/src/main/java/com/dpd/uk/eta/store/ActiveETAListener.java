@@ -0,0 +1,15 @@
+package com.dpd.uk.eta.store;
+
+import com.dpd.uk.eta.model.ETACalculation;
+
+/**
+ * Notified on the writer's thread whenever the active store changes, so implementations must be cheap.
+ */
+public interface ActiveETAListener {
+    
+    /**
+     * @param previous the entry replaced or removed, or null for a new parcel
+     * @param current  the new entry; inactive when the parcel left the store
+     */
+    void onChange(ETACalculation previous, ETACalculation current);
+}
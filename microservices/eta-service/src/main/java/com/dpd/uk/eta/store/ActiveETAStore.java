@@ -0,0 +1,354 @@
+package com.dpd.uk.eta.store;
+
+import com.dpd.uk.eta.history.ETAEventLog;
+import com.dpd.uk.eta.model.ETACalculation;
+import com.dpd.uk.eta.repository.ETACalculationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * In-process store of active ETA calculations, sharded by depot with a read/write lock per shard
+ * and secondary indexes by driver and vehicle. Writes land in memory and are persisted to Mongo
+ * through the {@link ETAWriteCoalescer}; estimates that moved are also appended to the {@link ETAEventLog}.
+ * <p>
+ * Stored instances are shared with readers and must not be mutated; callers change a
+ * {@code toBuilder()} copy and {@link #put} it back.
+ * <p>
+ * Retired parcels are remembered until their inactive version has been flushed, so a read that misses
+ * memory does not load the stale active row back from Mongo.
+ */
+@Slf4j
+@Component
+public class ActiveETAStore {
+    
+    private static final String UNASSIGNED_DEPOT = "UNASSIGNED";
+    
+    private final ETACalculationRepository etaCalculationRepository;
+    private final ETAWriteCoalescer writeCoalescer;
+    private final ETAEventLog etaEventLog;
+    private final List<ActiveETAListener> listeners;
+    private final Clock clock;
+    
+    private final Map<String, DepotShard> shards = new ConcurrentHashMap<>();
+    private final Map<String, String> parcelDepots = new ConcurrentHashMap<>();
+    private final Set<String> loadedDrivers = ConcurrentHashMap.newKeySet();
+    private final Set<String> loadedVehicles = ConcurrentHashMap.newKeySet();
+    // Parcels made inactive, by when; Mongo may still hold them as active
+    private final Map<String, LocalDateTime> retired = new ConcurrentHashMap<>();
+    
+    // Kept after the flush too, to cover Mongo queries that started before it
+    @Value("${eta.store.tombstone-seconds:60}")
+    private long tombstoneSeconds;
+    
+    @Autowired
+    public ActiveETAStore(ETACalculationRepository etaCalculationRepository, ETAWriteCoalescer writeCoalescer,
+                          ETAEventLog etaEventLog, List<ActiveETAListener> listeners) {
+        this(etaCalculationRepository, writeCoalescer, etaEventLog, listeners, Clock.systemDefaultZone());
+    }
+    
+    ActiveETAStore(ETACalculationRepository etaCalculationRepository, ETAWriteCoalescer writeCoalescer,
+                   ETAEventLog etaEventLog, List<ActiveETAListener> listeners, Clock clock) {
+        this.etaCalculationRepository = etaCalculationRepository;
+        this.writeCoalescer = writeCoalescer;
+        this.etaEventLog = etaEventLog;
+        this.listeners = listeners;
+        this.clock = clock;
+    }
+    
+    public Optional<ETACalculation> get(String parcelId) {
+        String depotId = parcelDepots.get(parcelId);
+        if (depotId != null) {
+            ETACalculation calculation = shard(depotId).get(parcelId);
+            if (calculation != null) {
+                return Optional.of(calculation);
+            }
+        }
+        
+        Optional<ETACalculation> loaded = etaCalculationRepository.findByParcelIdAndIsActiveTrue(parcelId);
+        loaded.ifPresent(this::load);
+        return loaded.flatMap(calculation -> Optional.ofNullable(shard(depotKey(calculation)).get(parcelId)));
+    }
+    
+    /**
+     * Resolves many parcels at once; misses are loaded with a single query.
+     */
+    public Map<String, ETACalculation> getAll(Collection<String> parcelIds) {
+        Map<String, ETACalculation> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String parcelId : parcelIds) {
+            String depotId = parcelDepots.get(parcelId);
+            ETACalculation calculation = depotId != null ? shard(depotId).get(parcelId) : null;
+            if (calculation != null) {
+                found.put(parcelId, calculation);
+            } else {
+                missing.add(parcelId);
+            }
+        }
+        
+        if (!missing.isEmpty()) {
+            for (ETACalculation calculation : etaCalculationRepository.findActiveByParcelIds(missing)) {
+                load(calculation);
+                ETACalculation current = shard(depotKey(calculation)).get(calculation.getParcelId());
+                if (current != null) {
+                    found.put(calculation.getParcelId(), current);
+                }
+            }
+        }
+        return found;
+    }
+    
+    public List<ETACalculation> getByDepot(String depotId) {
+        loadDepot(depotId);
+        return shard(depotId).all();
+    }
+    
+    /**
+     * Pulls the depot's active calculations from Mongo the first time it is asked for.
+     */
+    public void loadDepot(String depotId) {
+        DepotShard shard = shard(depotId);
+        if (!shard.loaded) {
+            for (ETACalculation calculation : shard.loadOnce(() -> live(etaCalculationRepository.findByDepotIdAndIsActiveTrue(depotId)))) {
+                parcelDepots.putIfAbsent(calculation.getParcelId(), depotId);
+                notifyListeners(null, calculation);
+            }
+        }
+    }
+    
+    public boolean isDepotLoaded(String depotId) {
+        DepotShard shard = shards.get(depotId);
+        return shard != null && shard.loaded;
+    }
+    
+    public List<ETACalculation> getByDriver(String driverId) {
+        if (loadedDrivers.add(driverId)) {
+            etaCalculationRepository.findByDriverIdAndIsActiveTrue(driverId).forEach(this::load);
+        }
+        List<ETACalculation> result = new ArrayList<>();
+        shards.values().forEach(shard -> shard.collect(shard.byDriver, driverId, result));
+        return result;
+    }
+    
+    public List<ETACalculation> getByVehicle(String vehicleId) {
+        if (loadedVehicles.add(vehicleId)) {
+            etaCalculationRepository.findByVehicleIdAndIsActiveTrue(vehicleId).forEach(this::load);
+        }
+        List<ETACalculation> result = new ArrayList<>();
+        shards.values().forEach(shard -> shard.collect(shard.byVehicle, vehicleId, result));
+        return result;
+    }
+    
+    /**
+     * Stores a new or changed calculation and queues it for persistence. Inactive calculations leave the store.
+     */
+    public void put(ETACalculation calculation) {
+        if (calculation.getId() == null) {
+            // Assigned up front so repeated flushes of a new calculation upsert one document
+            calculation.setId(new ObjectId().toHexString());
+        }
+        
+        String depotId = depotKey(calculation);
+        if (Boolean.FALSE.equals(calculation.getIsActive())) {
+            retired.put(calculation.getParcelId(), LocalDateTime.now(clock));
+        } else {
+            retired.remove(calculation.getParcelId());
+        }
+        String previousDepot = Boolean.FALSE.equals(calculation.getIsActive())
+            ? parcelDepots.remove(calculation.getParcelId())
+            : parcelDepots.put(calculation.getParcelId(), depotId);
+        ETACalculation previous = null;
+        if (previousDepot != null && !previousDepot.equals(depotId)) {
+            previous = shard(previousDepot).remove(calculation.getParcelId());
+        }
+        
+        ETACalculation replaced = Boolean.FALSE.equals(calculation.getIsActive())
+            ? shard(depotId).remove(calculation.getParcelId())
+            : shard(depotId).put(calculation);
+        notifyListeners(previous != null ? previous : replaced, calculation);
+        writeCoalescer.enqueue(calculation);
+        if (!Boolean.FALSE.equals(calculation.getIsActive())) {
+            etaEventLog.recordEstimate(calculation);
+        }
+    }
+    
+    public void putAll(Collection<ETACalculation> calculations) {
+        calculations.forEach(this::put);
+    }
+    
+    public int size() {
+        return parcelDepots.size();
+    }
+    
+    @Scheduled(fixedRate = 60000) // Run every minute
+    public void evictTombstones() {
+        LocalDateTime cutoff = LocalDateTime.now(clock).minusSeconds(tombstoneSeconds);
+        retired.entrySet().removeIf(entry -> entry.getValue().isBefore(cutoff)
+            && !writeCoalescer.isUnflushed(entry.getKey()));
+    }
+    
+    private List<ETACalculation> live(List<ETACalculation> loaded) {
+        return retired.isEmpty() ? loaded
+            : loaded.stream().filter(calculation -> !retired.containsKey(calculation.getParcelId())).toList();
+    }
+    
+    private void load(ETACalculation calculation) {
+        if (retired.containsKey(calculation.getParcelId())) {
+            return;
+        }
+        // Entries already in memory are newer than what Mongo returned
+        if (parcelDepots.putIfAbsent(calculation.getParcelId(), depotKey(calculation)) == null
+                && shard(depotKey(calculation)).putIfAbsent(calculation)) {
+            notifyListeners(null, calculation);
+        }
+    }
+    
+    private void notifyListeners(ETACalculation previous, ETACalculation current) {
+        for (ActiveETAListener listener : listeners) {
+            try {
+                listener.onChange(previous, current);
+            } catch (Exception e) {
+                log.warn("ETA store listener failed for parcel: {}", current.getParcelId(), e);
+            }
+        }
+    }
+    
+    private DepotShard shard(String depotId) {
+        return shards.computeIfAbsent(depotId, id -> new DepotShard());
+    }
+    
+    private String depotKey(ETACalculation calculation) {
+        return calculation.getDepotId() != null ? calculation.getDepotId() : UNASSIGNED_DEPOT;
+    }
+    
+    private static final class DepotShard {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, ETACalculation> byParcel = new HashMap<>();
+        private final Map<String, Set<String>> byDriver = new HashMap<>();
+        private final Map<String, Set<String>> byVehicle = new HashMap<>();
+        private volatile boolean loaded;
+        
+        ETACalculation get(String parcelId) {
+            lock.readLock().lock();
+            try {
+                return byParcel.get(parcelId);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        
+        List<ETACalculation> all() {
+            lock.readLock().lock();
+            try {
+                return new ArrayList<>(byParcel.values());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        
+        void collect(Map<String, Set<String>> index, String key, List<ETACalculation> result) {
+            lock.readLock().lock();
+            try {
+                Set<String> parcelIds = index.get(key);
+                if (parcelIds != null) {
+                    parcelIds.forEach(parcelId -> result.add(byParcel.get(parcelId)));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        
+        ETACalculation put(ETACalculation calculation) {
+            lock.writeLock().lock();
+            try {
+                ETACalculation previous = byParcel.put(calculation.getParcelId(), calculation);
+                unindex(previous);
+                index(calculation);
+                return previous;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        boolean putIfAbsent(ETACalculation calculation) {
+            lock.writeLock().lock();
+            try {
+                if (byParcel.putIfAbsent(calculation.getParcelId(), calculation) != null) {
+                    return false;
+                }
+                index(calculation);
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        ETACalculation remove(String parcelId) {
+            lock.writeLock().lock();
+            try {
+                ETACalculation removed = byParcel.remove(parcelId);
+                unindex(removed);
+                return removed;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        List<ETACalculation> loadOnce(Supplier<List<ETACalculation>> loader) {
+            lock.writeLock().lock();
+            try {
+                if (loaded) {
+                    return List.of();
+                }
+                List<ETACalculation> added = new ArrayList<>();
+                for (ETACalculation calculation : loader.get()) {
+                    if (byParcel.putIfAbsent(calculation.getParcelId(), calculation) == null) {
+                        index(calculation);
+                        added.add(calculation);
+                    }
+                }
+                loaded = true;
+                return added;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        private void index(ETACalculation calculation) {
+            if (calculation.getDriverId() != null) {
+                byDriver.computeIfAbsent(calculation.getDriverId(), id -> new HashSet<>()).add(calculation.getParcelId());
+            }
+            if (calculation.getVehicleId() != null) {
+                byVehicle.computeIfAbsent(calculation.getVehicleId(), id -> new HashSet<>()).add(calculation.getParcelId());
+            }
+        }
+        
+        private void unindex(ETACalculation calculation) {
+            if (calculation == null) {
+                return;
+            }
+            removeFromIndex(byDriver, calculation.getDriverId(), calculation.getParcelId());
+            removeFromIndex(byVehicle, calculation.getVehicleId(), calculation.getParcelId());
+        }
+        
+        private void removeFromIndex(Map<String, Set<String>> index, String key, String parcelId) {
+            if (key == null) {
+                return;
+            }
+            Set<String> parcelIds = index.get(key);
+            if (parcelIds != null && parcelIds.remove(parcelId) && parcelIds.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.dpd.uk.eta.store;
+
+import com.dpd.uk.eta.model.ETACalculation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Active ETAs per depot in a timing wheel of one-minute arrival buckets, kept current from store changes.
+ * "Arriving within N minutes" reads N buckets, and subscribers are called once when a parcel's
+ * arrival enters their window, either through a recalculation or because time moved on.
+ */
+@Slf4j
+@Component
+public class ArrivalIndex implements ActiveETAListener {
+    
+    private final Map<String, DepotWheel> wheels = new ConcurrentHashMap<>();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final int horizonMinutes;
+    private final Clock clock;
+    
+    @Autowired
+    public ArrivalIndex(@Value("${eta.calculation.max-prediction-hours:24}") int maxPredictionHours) {
+        this(maxPredictionHours, Clock.systemDefaultZone());
+    }
+    
+    ArrivalIndex(int maxPredictionHours, Clock clock) {
+        this.horizonMinutes = maxPredictionHours * 60;
+        this.clock = clock;
+    }
+    
+    /**
+     * Calls {@code callback} when an active parcel's estimated arrival comes within {@code windowMinutes}.
+     */
+    public void subscribe(String name, int windowMinutes, Consumer<ETACalculation> callback) {
+        subscriptions.add(new Subscription(name, Math.min(windowMinutes, horizonMinutes - 1), callback));
+        log.info("Registered arrival subscription {} ({} minutes)", name, windowMinutes);
+    }
+    
+    /**
+     * Active calculations for the depot arriving between now and {@code withinMinutes} from now, soonest first.
+     */
+    public List<ETACalculation> arriving(String depotId, int withinMinutes) {
+        DepotWheel wheel = wheels.get(depotId);
+        if (wheel == null) {
+            return List.of();
+        }
+        return wheel.between(nowMinute(), nowMinute() + Math.min(withinMinutes, horizonMinutes - 1));
+    }
+    
+    @Override
+    public void onChange(ETACalculation previous, ETACalculation current) {
+        if (previous != null && previous.getDepotId() != null && !previous.getDepotId().equals(current.getDepotId())) {
+            wheel(previous.getDepotId()).remove(previous.getParcelId());
+        }
+        if (current.getDepotId() == null) {
+            return;
+        }
+        
+        DepotWheel wheel = wheel(current.getDepotId());
+        if (Boolean.FALSE.equals(current.getIsActive()) || current.getEstimatedArrival() == null) {
+            wheel.remove(current.getParcelId());
+            return;
+        }
+        fire(wheel.place(current, nowMinute()));
+    }
+    
+    @Scheduled(cron = "0 * * * * *")
+    public void tick() {
+        long now = nowMinute();
+        for (DepotWheel wheel : wheels.values()) {
+            fire(wheel.advance(now));
+        }
+    }
+    
+    private void fire(List<Entered> entered) {
+        for (Entered entry : entered) {
+            try {
+                entry.subscription().callback().accept(entry.calculation());
+            } catch (Exception e) {
+                log.warn("Arrival subscription {} failed for parcel: {}", entry.subscription().name(),
+                    entry.calculation().getParcelId(), e);
+            }
+        }
+    }
+    
+    private DepotWheel wheel(String depotId) {
+        return wheels.computeIfAbsent(depotId, id -> new DepotWheel());
+    }
+    
+    private long nowMinute() {
+        return epochMinute(LocalDateTime.now(clock));
+    }
+    
+    private static long epochMinute(LocalDateTime time) {
+        // Both sides use the same local clock, so treating it as UTC keeps minutes comparable
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+    
+    private record Subscription(String name, int windowMinutes, Consumer<ETACalculation> callback) {
+    }
+    
+    private record Entered(Subscription subscription, ETACalculation calculation) {
+    }
+    
+    private final class DepotWheel {
+        private final ReentrantLock lock = new ReentrantLock();
+        // Slot i holds arrivals in the minute recorded in slotMinute[i]; stale slots are cleared on reuse
+        private final Map<String, ETACalculation>[] slots;
+        private final long[] slotMinute;
+        private final Map<String, Long> minuteByParcel = new HashMap<>();
+        // Arrivals beyond the horizon wait here until they come into range
+        private final Map<String, ETACalculation> beyondHorizon = new HashMap<>();
+        private final Map<Subscription, Set<String>> notified = new HashMap<>();
+        // Last minute advanced to; every slot before it has been dropped
+        private long lastTick = nowMinute();
+        
+        @SuppressWarnings("unchecked")
+        DepotWheel() {
+            this.slots = new Map[horizonMinutes];
+            this.slotMinute = new long[horizonMinutes];
+        }
+        
+        List<Entered> place(ETACalculation calculation, long now) {
+            lock.lock();
+            try {
+                String parcelId = calculation.getParcelId();
+                long minute = epochMinute(calculation.getEstimatedArrival());
+                if (minute < now) {
+                    // Overdue: no longer "arriving", so it is forgotten just as when its slot is dropped
+                    removeLocked(parcelId, true);
+                    return List.of();
+                }
+                removeLocked(parcelId, false);
+                if (minute >= now + horizonMinutes) {
+                    beyondHorizon.put(parcelId, calculation);
+                    return List.of();
+                }
+                
+                slot(minute).put(parcelId, calculation);
+                minuteByParcel.put(parcelId, minute);
+                
+                List<Entered> entered = new ArrayList<>();
+                for (Subscription subscription : subscriptions) {
+                    Set<String> seen = notified.computeIfAbsent(subscription, s -> new HashSet<>());
+                    if (minute <= now + subscription.windowMinutes()) {
+                        if (seen.add(parcelId)) {
+                            entered.add(new Entered(subscription, calculation));
+                        }
+                    } else {
+                        // Pushed back out of the window, so it should be announced again on re-entry
+                        seen.remove(parcelId);
+                    }
+                }
+                return entered;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        void remove(String parcelId) {
+            lock.lock();
+            try {
+                removeLocked(parcelId, true);
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        List<ETACalculation> between(long fromMinute, long toMinute) {
+            lock.lock();
+            try {
+                List<ETACalculation> result = new ArrayList<>();
+                for (long minute = fromMinute; minute <= toMinute; minute++) {
+                    int index = index(minute);
+                    if (slots[index] != null && slotMinute[index] == minute) {
+                        result.addAll(slots[index].values());
+                    }
+                }
+                return result;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        List<Entered> advance(long now) {
+            lock.lock();
+            try {
+                List<Entered> entered = new ArrayList<>();
+                
+                // Drop minutes that have passed, with their parcels' notification state
+                for (long minute = Math.max(lastTick, now - horizonMinutes); minute < now; minute++) {
+                    int index = index(minute);
+                    if (slots[index] != null && slotMinute[index] == minute) {
+                        for (String parcelId : slots[index].keySet()) {
+                            minuteByParcel.remove(parcelId);
+                            notified.values().forEach(seen -> seen.remove(parcelId));
+                        }
+                        slots[index] = null;
+                    }
+                }
+                
+                // Promote arrivals that are now within the horizon
+                if (!beyondHorizon.isEmpty()) {
+                    List<ETACalculation> promoted = beyondHorizon.values().stream()
+                        .filter(calculation -> epochMinute(calculation.getEstimatedArrival()) < now + horizonMinutes)
+                        .toList();
+                    for (ETACalculation calculation : promoted) {
+                        beyondHorizon.remove(calculation.getParcelId());
+                        long minute = epochMinute(calculation.getEstimatedArrival());
+                        slot(minute).put(calculation.getParcelId(), calculation);
+                        minuteByParcel.put(calculation.getParcelId(), minute);
+                    }
+                }
+                
+                // Buckets that have just come inside each subscription's window
+                for (Subscription subscription : subscriptions) {
+                    Set<String> seen = notified.computeIfAbsent(subscription, s -> new HashSet<>());
+                    long from = Math.max(lastTick, now - horizonMinutes - 1) + 1 + subscription.windowMinutes();
+                    for (long minute = from; minute <= now + subscription.windowMinutes(); minute++) {
+                        int index = index(minute);
+                        if (slots[index] != null && slotMinute[index] == minute) {
+                            slots[index].forEach((parcelId, calculation) -> {
+                                if (seen.add(parcelId)) {
+                                    entered.add(new Entered(subscription, calculation));
+                                }
+                            });
+                        }
+                    }
+                }
+                
+                lastTick = now;
+                return entered;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private void removeLocked(String parcelId, boolean forget) {
+            Long minute = minuteByParcel.remove(parcelId);
+            if (minute != null) {
+                int index = index(minute);
+                if (slots[index] != null && slotMinute[index] == minute) {
+                    slots[index].remove(parcelId);
+                }
+            }
+            beyondHorizon.remove(parcelId);
+            if (forget) {
+                notified.values().forEach(seen -> seen.remove(parcelId));
+            }
+        }
+        
+        private Map<String, ETACalculation> slot(long minute) {
+            int index = index(minute);
+            if (slots[index] == null || slotMinute[index] != minute) {
+                if (slots[index] != null) {
+                    slots[index].keySet().forEach(minuteByParcel::remove);
+                }
+                slots[index] = new HashMap<>();
+                slotMinute[index] = minute;
+            }
+            return slots[index];
+        }
+        
+        private int index(long minute) {
+            return (int) Math.floorMod(minute, (long) horizonMinutes);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.dpd.uk.eta.store;
+
+import com.dpd.uk.eta.model.ETACalculation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Fans store changes out to subscribers of one depot or driver, such as open event streams. A parcel that
+ * moves to another depot or driver is delivered to both views. Subscribers are called on the writer's
+ * thread and should only hand the change off.
+ */
+@Slf4j
+@Component
+public class ETAChangeFeed implements ActiveETAListener {
+    
+    public enum Scope {
+        DEPOT,
+        DRIVER
+    }
+    
+    private final Map<Scope, Map<String, Set<Consumer<ETACalculation>>>> subscribers = new EnumMap<>(Scope.class);
+    
+    public ETAChangeFeed() {
+        for (Scope scope : Scope.values()) {
+            subscribers.put(scope, new ConcurrentHashMap<>());
+        }
+    }
+    
+    /**
+     * Registers a subscriber for changes to parcels in the given depot or driver's view.
+     *
+     * @return action that removes the subscriber again
+     */
+    public Runnable subscribe(Scope scope, String key, Consumer<ETACalculation> subscriber) {
+        Map<String, Set<Consumer<ETACalculation>>> byKey = subscribers.get(scope);
+        byKey.compute(key, (k, existing) -> {
+            Set<Consumer<ETACalculation>> set = existing != null ? existing : ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            return set;
+        });
+        
+        return () -> byKey.computeIfPresent(key, (k, existing) -> {
+            existing.remove(subscriber);
+            return existing.isEmpty() ? null : existing;
+        });
+    }
+    
+    @Override
+    public void onChange(ETACalculation previous, ETACalculation current) {
+        publish(Scope.DEPOT, previous != null ? previous.getDepotId() : null, current.getDepotId(), current);
+        publish(Scope.DRIVER, previous != null ? previous.getDriverId() : null, current.getDriverId(), current);
+    }
+    
+    private void publish(Scope scope, String previousKey, String currentKey, ETACalculation current) {
+        Map<String, Set<Consumer<ETACalculation>>> byKey = subscribers.get(scope);
+        if (byKey.isEmpty()) {
+            return;
+        }
+        if (currentKey != null) {
+            deliver(byKey.get(currentKey), current);
+        }
+        if (previousKey != null && !previousKey.equals(currentKey)) {
+            deliver(byKey.get(previousKey), current);
+        }
+    }
+    
+    private void deliver(Set<Consumer<ETACalculation>> targets, ETACalculation current) {
+        if (targets == null) {
+            return;
+        }
+        for (Consumer<ETACalculation> target : targets) {
+            try {
+                target.accept(current);
+            } catch (Exception e) {
+                log.warn("ETA change subscriber failed for parcel: {}", current.getParcelId(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.dpd.uk.eta.store;
+
+import com.dpd.uk.eta.model.ETACalculation;
+import com.dpd.uk.eta.repository.ETACalculationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for ETA calculations. Updates to the same parcel between flushes collapse to the
+ * latest version, and each flush reaches Mongo as unordered bulk upserts of at most {@code max-batch}.
+ * Once more than {@code max-pending} parcels are waiting, writers flush on their own thread, so a slow
+ * Mongo holds back producers instead of growing the buffer.
+ * <p>
+ * A failed flush backs off exponentially, and no flush is attempted until the backoff has passed.
+ * The buffer is capped at {@code max-buffered} parcels: a new active parcel beyond that waits up to
+ * {@code enqueue-timeout-ms} for space and is otherwise shed, to be written on its next update.
+ * Inactive calculations are always kept, so a retired parcel is never left active in Mongo.
+ */
+@Slf4j
+@Component
+public class ETAWriteCoalescer {
+    
+    private final ETACalculationRepository etaCalculationRepository;
+    private final Clock clock;
+    
+    private final Map<String, ETACalculation> pending = new ConcurrentHashMap<>();
+    // Versions taken from pending that Mongo has not acknowledged yet
+    private final Map<String, ETACalculation> writing = new ConcurrentHashMap<>();
+    // Serializes flushes so an older version of a parcel is never written after a newer one
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Separate from the flush lock, so writers waiting for space never queue behind a slow flush
+    private final ReentrantLock spaceLock = new ReentrantLock();
+    private final Condition spaceAvailable = spaceLock.newCondition();
+    private final AtomicLong shed = new AtomicLong();
+    // Guarded by flushLock
+    private int consecutiveFailures;
+    private volatile long retryAtMillis;
+    
+    @Value("${eta.store.max-pending:50000}")
+    private int maxPending;
+    
+    @Value("${eta.store.max-buffered:200000}")
+    private int maxBuffered;
+    
+    @Value("${eta.store.max-batch:1000}")
+    private int maxBatch;
+    
+    @Value("${eta.store.enqueue-timeout-ms:200}")
+    private long enqueueTimeoutMs;
+    
+    @Value("${eta.store.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+    
+    @Value("${eta.store.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+    
+    @Autowired
+    public ETAWriteCoalescer(ETACalculationRepository etaCalculationRepository) {
+        this(etaCalculationRepository, Clock.systemDefaultZone());
+    }
+    
+    ETAWriteCoalescer(ETACalculationRepository etaCalculationRepository, Clock clock) {
+        this.etaCalculationRepository = etaCalculationRepository;
+        this.clock = clock;
+    }
+    
+    public void enqueue(ETACalculation calculation) {
+        String parcelId = calculation.getParcelId();
+        // Replacing a waiting version never grows the buffer
+        if (pending.replace(parcelId, calculation) != null) {
+            return;
+        }
+        if (pending.size() >= maxBuffered && !Boolean.FALSE.equals(calculation.getIsActive()) && !awaitSpace()) {
+            shed.incrementAndGet();
+            return;
+        }
+        if (pending.put(parcelId, calculation) != null || pending.size() <= maxPending || backingOff()) {
+            return;
+        }
+        
+        flushLock.lock();
+        try {
+            // Another writer may have drained the buffer, or a flush failed, while this one waited
+            if (pending.size() > maxPending && !backingOff()) {
+                log.debug("ETA write buffer full ({} parcels), flushing inline", pending.size());
+                drain();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * Whether a version of the parcel is still waiting for Mongo, so reads from Mongo may be stale.
+     */
+    public boolean isUnflushed(String parcelId) {
+        return pending.containsKey(parcelId) || writing.containsKey(parcelId);
+    }
+    
+    @Scheduled(fixedDelayString = "${eta.store.flush-interval-ms:1000}")
+    public void flush() {
+        long lost = shed.getAndSet(0);
+        if (lost > 0) {
+            log.warn("ETA write buffer at capacity ({} parcels), shed {} new calculations", pending.size(), lost);
+        }
+        if (pending.isEmpty() || backingOff()) {
+            return;
+        }
+        
+        flushLock.lock();
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        // One last attempt regardless of any backoff
+        flushLock.lock();
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    private boolean backingOff() {
+        return clock.millis() < retryAtMillis;
+    }
+    
+    private boolean awaitSpace() {
+        // Nothing drains during a backoff, so waiting would only stall the writer
+        if (backingOff()) {
+            return false;
+        }
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(enqueueTimeoutMs);
+        spaceLock.lock();
+        try {
+            while (pending.size() >= maxBuffered) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = spaceAvailable.awaitNanos(remainingNanos);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            spaceLock.unlock();
+        }
+    }
+    
+    private void signalSpace() {
+        spaceLock.lock();
+        try {
+            spaceAvailable.signalAll();
+        } finally {
+            spaceLock.unlock();
+        }
+    }
+    
+    private void drain() {
+        Iterator<String> parcelIds = new ArrayList<>(pending.keySet()).iterator();
+        int written = 0;
+        while (parcelIds.hasNext()) {
+            List<ETACalculation> batch = new ArrayList<>(maxBatch);
+            while (parcelIds.hasNext() && batch.size() < maxBatch) {
+                String parcelId = parcelIds.next();
+                ETACalculation calculation = pending.get(parcelId);
+                if (calculation != null) {
+                    // Marked as writing before it leaves pending, so it is never unaccounted for
+                    writing.put(parcelId, calculation);
+                    pending.remove(parcelId, calculation);
+                    batch.add(calculation);
+                }
+            }
+            
+            try {
+                etaCalculationRepository.upsertAll(batch);
+                written += batch.size();
+                signalSpace();
+            } catch (Exception e) {
+                // Requeue unless a newer version was written meanwhile
+                batch.forEach(calculation -> pending.putIfAbsent(calculation.getParcelId(), calculation));
+                consecutiveFailures++;
+                long backoffMs = Math.min(maxBackoffMs, flushIntervalMs << Math.min(consecutiveFailures - 1, 16));
+                retryAtMillis = clock.millis() + backoffMs;
+                log.error("Failed to flush {} ETA calculations, retrying in {} ms", batch.size(), backoffMs, e);
+                return;
+            } finally {
+                batch.forEach(calculation -> writing.remove(calculation.getParcelId(), calculation));
+            }
+        }
+        
+        consecutiveFailures = 0;
+        retryAtMillis = 0;
+        if (written > 0) {
+            log.debug("Flushed {} ETA calculations", written);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.dpd.uk.eta.store;
+
+import com.dpd.uk.eta.model.ETACalculation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-depot queues of active ETAs ordered by when they are next due for recomputation, kept current from
+ * store changes. The refresh interval shrinks as arrival approaches, and a parcel is always due again by the
+ * time it crosses into a closer tier, so nothing sits on the hourly cadence once it is within two hours.
+ */
+@Component
+public class RefreshQueue implements ActiveETAListener {
+    
+    private final Map<String, DepotQueue> queues = new ConcurrentHashMap<>();
+    private final Clock clock;
+    
+    @Value("${eta.refresh.soon-window-minutes:30}")
+    private long soonWindowMinutes;
+    
+    @Value("${eta.refresh.soon-interval-seconds:60}")
+    private long soonIntervalSeconds;
+    
+    @Value("${eta.refresh.near-window-minutes:120}")
+    private long nearWindowMinutes;
+    
+    @Value("${eta.refresh.near-interval-seconds:300}")
+    private long nearIntervalSeconds;
+    
+    @Value("${eta.refresh.far-interval-seconds:3600}")
+    private long farIntervalSeconds;
+    
+    public RefreshQueue() {
+        this(Clock.systemDefaultZone());
+    }
+    
+    RefreshQueue(Clock clock) {
+        this.clock = clock;
+    }
+    
+    @Override
+    public void onChange(ETACalculation previous, ETACalculation current) {
+        if (previous != null && previous.getDepotId() != null && !previous.getDepotId().equals(current.getDepotId())) {
+            queue(previous.getDepotId()).remove(previous.getParcelId());
+        }
+        if (current.getDepotId() == null) {
+            return;
+        }
+        
+        DepotQueue queue = queue(current.getDepotId());
+        if (Boolean.FALSE.equals(current.getIsActive()) || current.getEstimatedArrival() == null) {
+            queue.remove(current.getParcelId());
+            return;
+        }
+        long now = nowMillis();
+        queue.schedule(current.getParcelId(), nextDue(now, epochMillis(current.getEstimatedArrival())));
+    }
+    
+    /**
+     * Stops refreshing the parcel until its next change, e.g. because something else keeps it current.
+     */
+    public void remove(String depotId, String parcelId) {
+        DepotQueue queue = queues.get(depotId);
+        if (queue != null) {
+            queue.remove(parcelId);
+        }
+    }
+    
+    public List<String> depots() {
+        return new ArrayList<>(queues.keySet());
+    }
+    
+    /**
+     * Takes up to {@code max} parcels whose refresh is due, most overdue first. Each is provisionally requeued
+     * one short interval out, so a failed recomputation is retried; a successful one reschedules it anyway.
+     */
+    public List<String> pollDue(String depotId, int max) {
+        DepotQueue queue = queues.get(depotId);
+        if (queue == null || max <= 0) {
+            return List.of();
+        }
+        long now = nowMillis();
+        return queue.pollDue(now, max, now + soonIntervalSeconds * 1000);
+    }
+    
+    private long nextDue(long now, long arrival) {
+        long untilArrival = arrival - now;
+        if (untilArrival > nearWindowMinutes * 60_000) {
+            return Math.min(now + farIntervalSeconds * 1000, arrival - nearWindowMinutes * 60_000);
+        }
+        if (untilArrival > soonWindowMinutes * 60_000) {
+            return Math.min(now + nearIntervalSeconds * 1000, arrival - soonWindowMinutes * 60_000);
+        }
+        // Due soon or already overdue
+        return now + soonIntervalSeconds * 1000;
+    }
+    
+    private DepotQueue queue(String depotId) {
+        return queues.computeIfAbsent(depotId, id -> new DepotQueue());
+    }
+    
+    private long nowMillis() {
+        return epochMillis(LocalDateTime.now(clock));
+    }
+    
+    private static long epochMillis(LocalDateTime time) {
+        // Same local-clock-as-UTC convention as the arrival index
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+    
+    private record Due(String parcelId, long dueMillis) {
+    }
+    
+    private static final class DepotQueue {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final PriorityQueue<Due> heap = new PriorityQueue<>((a, b) -> Long.compare(a.dueMillis(), b.dueMillis()));
+        // Latest entry per parcel; older heap entries are skipped when they surface
+        private final Map<String, Due> current = new HashMap<>();
+        
+        void schedule(String parcelId, long dueMillis) {
+            lock.lock();
+            try {
+                Due due = new Due(parcelId, dueMillis);
+                current.put(parcelId, due);
+                heap.add(due);
+                compactIfStale();
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        void remove(String parcelId) {
+            lock.lock();
+            try {
+                current.remove(parcelId);
+                compactIfStale();
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        List<String> pollDue(long now, int max, long retryMillis) {
+            lock.lock();
+            try {
+                List<String> due = new ArrayList<>();
+                while (due.size() < max && !heap.isEmpty() && heap.peek().dueMillis() <= now) {
+                    Due head = heap.poll();
+                    if (current.get(head.parcelId()) == head) {
+                        due.add(head.parcelId());
+                    }
+                }
+                for (String parcelId : due) {
+                    Due retry = new Due(parcelId, retryMillis);
+                    current.put(parcelId, retry);
+                    heap.add(retry);
+                }
+                return due;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private void compactIfStale() {
+            // Every reschedule leaves a dead entry behind; rebuild once they outnumber the live ones
+            if (heap.size() > 2 * current.size() + 64) {
+                heap.clear();
+                heap.addAll(current.values());
+            }
+        }
+    }
+}
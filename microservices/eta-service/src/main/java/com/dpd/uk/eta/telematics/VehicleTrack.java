@@ -0,0 +1,136 @@
+package com.dpd.uk.eta.telematics;
+
+import com.dpd.uk.eta.util.GeoUtils;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed-size ring buffer of the most recent pings for one vehicle, held in primitive arrays
+ * so ingesting a ping allocates nothing.
+ */
+public class VehicleTrack {
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] speeds;
+    private final long[] timestamps;
+    private int head; // next write position
+    private int count;
+    
+    private volatile long lastRecomputeMillis;
+    
+    public VehicleTrack(int capacity) {
+        this.latitudes = new double[capacity];
+        this.longitudes = new double[capacity];
+        this.speeds = new double[capacity];
+        this.timestamps = new long[capacity];
+    }
+    
+    /**
+     * Appends a ping; pings older than the latest one are dropped.
+     */
+    public boolean add(double latitude, double longitude, double speedKmh, long timestamp) {
+        lock.lock();
+        try {
+            if (count > 0 && timestamp <= timestamps[latest()]) {
+                return false;
+            }
+            latitudes[head] = latitude;
+            longitudes[head] = longitude;
+            speeds[head] = speedKmh;
+            timestamps[head] = timestamp;
+            head = (head + 1) % timestamps.length;
+            count = Math.min(count + 1, timestamps.length);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public Position position() {
+        lock.lock();
+        try {
+            if (count == 0) {
+                return null;
+            }
+            int latest = latest();
+            return new Position(latitudes[latest], longitudes[latest], timestamps[latest]);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Average speed over pings within the window: reported speeds where present,
+     * otherwise derived from the distance between consecutive positions.
+     */
+    public double currentSpeedKmh(long windowMillis) {
+        lock.lock();
+        try {
+            if (count == 0) {
+                return Double.NaN;
+            }
+            
+            int latest = latest();
+            long cutoff = timestamps[latest] - windowMillis;
+            double reportedSum = 0;
+            int reported = 0;
+            double distanceKm = 0;
+            long elapsedMillis = 0;
+            
+            int index = latest;
+            for (int i = 0; i < count && timestamps[index] >= cutoff; i++) {
+                if (!Double.isNaN(speeds[index])) {
+                    reportedSum += speeds[index];
+                    reported++;
+                }
+                int previous = (index - 1 + timestamps.length) % timestamps.length;
+                if (i + 1 < count && timestamps[previous] >= cutoff) {
+                    distanceKm += GeoUtils.haversineKm(latitudes[previous], longitudes[previous], latitudes[index], longitudes[index]);
+                    elapsedMillis += timestamps[index] - timestamps[previous];
+                }
+                index = previous;
+            }
+            
+            if (reported > 0) {
+                return reportedSum / reported;
+            }
+            return elapsedMillis > 0 ? distanceKm / (elapsedMillis / 3_600_000.0) : Double.NaN;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Claims the next recompute slot if at least {@code intervalMillis} has passed since the last one.
+     */
+    public boolean tryStartRecompute(long now, long intervalMillis) {
+        lock.lock();
+        try {
+            if (now - lastRecomputeMillis < intervalMillis) {
+                return false;
+            }
+            lastRecomputeMillis = now;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long lastPingMillis() {
+        lock.lock();
+        try {
+            return count == 0 ? 0 : timestamps[latest()];
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private int latest() {
+        return (head - 1 + timestamps.length) % timestamps.length;
+    }
+    
+    public record Position(double latitude, double longitude, long timestamp) {
+    }
+}
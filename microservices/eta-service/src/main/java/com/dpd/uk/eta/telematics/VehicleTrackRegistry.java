@@ -0,0 +1,53 @@
+package com.dpd.uk.eta.telematics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live telematics state per vehicle, fed by the telematics stream.
+ */
+@Component
+public class VehicleTrackRegistry {
+    
+    private final Map<String, VehicleTrack> tracks = new ConcurrentHashMap<>();
+    
+    @Value("${eta.telematics.buffer-size:16}")
+    private int bufferSize;
+    
+    @Value("${eta.telematics.speed-window-seconds:120}")
+    private long speedWindowSeconds;
+    
+    @Value("${eta.telematics.stale-after-seconds:300}")
+    private long staleAfterSeconds;
+    
+    public VehicleTrack track(String vehicleId) {
+        return tracks.computeIfAbsent(vehicleId, id -> new VehicleTrack(bufferSize));
+    }
+    
+    /**
+     * Track for the vehicle if it has reported recently enough to be trusted.
+     */
+    public Optional<VehicleTrack> liveTrack(String vehicleId) {
+        if (vehicleId == null) {
+            return Optional.empty();
+        }
+        VehicleTrack track = tracks.get(vehicleId);
+        long staleBefore = System.currentTimeMillis() - staleAfterSeconds * 1000;
+        return track != null && track.lastPingMillis() >= staleBefore ? Optional.of(track) : Optional.empty();
+    }
+    
+    public long speedWindowMillis() {
+        return speedWindowSeconds * 1000;
+    }
+    
+    @Scheduled(fixedRate = 600000) // Run every 10 minutes
+    public void evictIdleTracks() {
+        long idleBefore = System.currentTimeMillis() - 3_600_000; // silent for an hour
+        tracks.values().removeIf(track -> track.lastPingMillis() < idleBefore);
+    }
+}
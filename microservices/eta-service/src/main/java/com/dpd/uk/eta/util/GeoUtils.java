@@ -0,0 +1,61 @@
+package com.dpd.uk.eta.util;
+
+public final class GeoUtils {
+    
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final char[] GEOHASH_BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    
+    private GeoUtils() {
+    }
+    
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double dlat = phi2 - phi1;
+        double dlon = Math.toRadians(lon2 - lon1);
+        
+        double a = Math.sin(dlat / 2) * Math.sin(dlat / 2) +
+                   Math.cos(phi1) * Math.cos(phi2) *
+                   Math.sin(dlon / 2) * Math.sin(dlon / 2);
+        
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+    
+    /**
+     * Standard base-32 geohash; precision 6 gives cells of roughly 1.2km x 0.6km.
+     */
+    public static String geohash(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        char[] hash = new char[precision];
+        boolean evenBit = true; // bits alternate longitude, latitude
+        
+        for (int i = 0; i < precision; i++) {
+            int bits = 0;
+            for (int b = 0; b < 5; b++) {
+                if (evenBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (longitude >= mid) {
+                        bits = (bits << 1) | 1;
+                        minLon = mid;
+                    } else {
+                        bits <<= 1;
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (latitude >= mid) {
+                        bits = (bits << 1) | 1;
+                        minLat = mid;
+                    } else {
+                        bits <<= 1;
+                        maxLat = mid;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+            hash[i] = GEOHASH_BASE32[bits];
+        }
+        return new String(hash);
+    }
+}
@@ -0,0 +1,70 @@
+package com.dpd.uk.eta.history;
+
+import com.dpd.uk.common.model.ETA;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ETAEventCodecTest {
+    
+    private static final LocalDateTime AT = LocalDateTime.of(2026, 3, 2, 9, 15, 30, 250_000_000);
+    
+    @Test
+    void roundTripsAnEstimate() {
+        ETAEvent estimate = new ETAEvent(ETAEvent.Type.ESTIMATE, AT, AT, AT.plusMinutes(42),
+            AT.plusMinutes(40), AT.plusMinutes(55), ETA.ETAConfidence.HIGH);
+        
+        byte[] encoded = ETAEventCodec.encode(estimate);
+        
+        assertThat(encoded).hasSize(ETAEventCodec.SIZE);
+        assertThat(ETAEventCodec.decode(encoded)).isEqualTo(estimate);
+    }
+    
+    @Test
+    void roundTripsADeliveryWithTheEarlierPrediction() {
+        LocalDateTime predictedAt = AT.minusMinutes(90);
+        ETAEvent delivered = new ETAEvent(ETAEvent.Type.DELIVERED, AT, predictedAt, AT.minusMinutes(5),
+            AT.minusMinutes(10), AT.plusMinutes(15), ETA.ETAConfidence.MEDIUM);
+        
+        assertThat(ETAEventCodec.decode(ETAEventCodec.encode(delivered))).isEqualTo(delivered);
+    }
+    
+    @Test
+    void roundTripsAbsentFields() {
+        ETAEvent sparse = new ETAEvent(ETAEvent.Type.DELIVERED, AT, AT, null, null, null, null);
+        
+        assertThat(ETAEventCodec.decode(ETAEventCodec.encode(sparse))).isEqualTo(sparse);
+    }
+    
+    @Test
+    void missingPredictionTimeDecodesAsTheEventTime() {
+        ETAEvent withoutPrediction = new ETAEvent(ETAEvent.Type.DELIVERED, AT, null, AT.plusMinutes(3), null, null,
+            ETA.ETAConfidence.LOW);
+        
+        ETAEvent decoded = ETAEventCodec.decode(ETAEventCodec.encode(withoutPrediction));
+        
+        assertThat(decoded.predictedAt()).isEqualTo(AT);
+        assertThat(decoded.arrival()).isEqualTo(AT.plusMinutes(3));
+    }
+    
+    @Test
+    void arrivalsBeforeThePredictionKeepTheirSign() {
+        ETAEvent overdue = new ETAEvent(ETAEvent.Type.ESTIMATE, AT, AT, AT.minusHours(2), null, null, null);
+        
+        assertThat(ETAEventCodec.decode(ETAEventCodec.encode(overdue)).arrival()).isEqualTo(AT.minusHours(2));
+    }
+    
+    @Test
+    void rejectsOtherVersionsAndSizes() {
+        byte[] encoded = ETAEventCodec.encode(new ETAEvent(ETAEvent.Type.ESTIMATE, AT, AT, null, null, null, null));
+        byte[] futureVersion = encoded.clone();
+        futureVersion[0] = 2;
+        
+        assertThatThrownBy(() -> ETAEventCodec.decode(futureVersion)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ETAEventCodec.decode(new byte[]{1, 0, 0}))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,29 @@
+package com.dpd.uk.eta.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ETAEventLogTest {
+    
+    @Test
+    void fillsTheOpenBucketThenStartsNewOnes() {
+        List<Integer> events = List.of(1, 2, 3, 4, 5, 6, 7);
+        
+        assertThat(ETAEventLog.split(events, 2, 3))
+            .containsExactly(List.of(1, 2), List.of(3, 4, 5), List.of(6, 7));
+    }
+    
+    @Test
+    void keepsEventsTogetherWhenTheyFit() {
+        assertThat(ETAEventLog.split(List.of(1, 2), 5, 3)).containsExactly(List.of(1, 2));
+    }
+    
+    @Test
+    void startsANewBucketWithoutAnOpenOne() {
+        assertThat(ETAEventLog.split(List.of(1, 2, 3, 4), 0, 3))
+            .containsExactly(List.of(1, 2, 3), List.of(4));
+    }
+}
@@ -0,0 +1,113 @@
+package com.dpd.uk.eta.inference;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TreeEnsembleModelTest {
+    
+    private static final int DISTANCE = ETAFeatures.NAMES.indexOf("distanceKm");
+    
+    @Test
+    void sumsBaseScoreAndTreeLeaves() {
+        TreeEnsembleModel model = TreeEnsembleModel.fromSpec(spec(splitOnDistance(), leaf(1.0)));
+        
+        assertThat(model.version()).isEqualTo("test-1");
+        assertThat(model.treeCount()).isEqualTo(2);
+        assertThat(model.score(row(5.0), 0)).isEqualTo(36.0);
+        assertThat(model.score(row(15.0), 0)).isEqualTo(51.0);
+    }
+    
+    @Test
+    void missingValuesFollowTheDefaultDirection() {
+        TreeEnsembleModel model = TreeEnsembleModel.fromSpec(spec(splitOnDistance()));
+        
+        assertThat(model.score(row(Double.NaN), 0)).isEqualTo(35.0);
+    }
+    
+    @Test
+    void batchScoringMatchesSingleRows() {
+        TreeEnsembleModel model = TreeEnsembleModel.fromSpec(spec(splitOnDistance(), leaf(1.0)));
+        double[] features = new double[3 * ETAFeatures.COUNT];
+        System.arraycopy(row(5.0), 0, features, 0, ETAFeatures.COUNT);
+        System.arraycopy(row(15.0), 0, features, ETAFeatures.COUNT, ETAFeatures.COUNT);
+        System.arraycopy(row(Double.NaN), 0, features, 2 * ETAFeatures.COUNT, ETAFeatures.COUNT);
+        double[] out = new double[3];
+        
+        model.scoreBatch(features, 3, out);
+        
+        for (int row = 0; row < 3; row++) {
+            assertThat(out[row]).isEqualTo(model.score(features, row * ETAFeatures.COUNT));
+        }
+    }
+    
+    @Test
+    void rejectsUnknownFeatureNames() {
+        TreeEnsembleModel.ModelSpec spec = new TreeEnsembleModel.ModelSpec("test-1", 30.0,
+            List.of("windSpeed"), List.of(splitOnDistance()));
+        
+        assertThatThrownBy(() -> TreeEnsembleModel.fromSpec(spec))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("windSpeed");
+    }
+    
+    @Test
+    void rejectsFeatureIndicesBeyondTheModelsFeatures() {
+        TreeEnsembleModel.TreeSpec tree = new TreeEnsembleModel.TreeSpec(
+            new int[]{1, -1, -1}, new double[]{10, 0, 0}, new int[]{1, 0, 0}, new int[]{2, 0, 0}, null,
+            new double[]{0, 5, 20});
+        
+        assertThatThrownBy(() -> TreeEnsembleModel.fromSpec(spec(tree)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Feature index 1");
+    }
+    
+    @Test
+    void rejectsNodeArraysOfDifferentLengths() {
+        TreeEnsembleModel.TreeSpec tree = new TreeEnsembleModel.TreeSpec(
+            new int[]{0, -1, -1}, new double[]{10}, new int[]{1, 0, 0}, new int[]{2, 0, 0}, null,
+            new double[]{0, 5, 20});
+        
+        assertThatThrownBy(() -> TreeEnsembleModel.fromSpec(spec(tree)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("tree 0");
+    }
+    
+    @Test
+    void rejectsChildrenThatPointBackwards() {
+        TreeEnsembleModel.TreeSpec tree = new TreeEnsembleModel.TreeSpec(
+            new int[]{-1, 0, -1}, new double[]{0, 10, 0}, new int[]{0, 0, 0}, new int[]{0, 2, 0}, null,
+            new double[]{5, 0, 20});
+        
+        assertThatThrownBy(() -> TreeEnsembleModel.fromSpec(spec(tree)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Invalid children at node 1");
+    }
+    
+    private static TreeEnsembleModel.ModelSpec spec(TreeEnsembleModel.TreeSpec... trees) {
+        return new TreeEnsembleModel.ModelSpec("test-1", 30.0, List.of("distanceKm"), List.of(trees));
+    }
+    
+    // distanceKm < 10 -> 5, otherwise 20; missing goes left
+    private static TreeEnsembleModel.TreeSpec splitOnDistance() {
+        return new TreeEnsembleModel.TreeSpec(
+            new int[]{0, -1, -1}, new double[]{10, 0, 0}, new int[]{1, 0, 0}, new int[]{2, 0, 0},
+            new boolean[]{true, false, false}, new double[]{0, 5, 20});
+    }
+    
+    private static TreeEnsembleModel.TreeSpec leaf(double value) {
+        return new TreeEnsembleModel.TreeSpec(new int[]{-1}, new double[]{0}, new int[]{0}, new int[]{0}, null,
+            new double[]{value});
+    }
+    
+    private static double[] row(double distanceKm) {
+        double[] row = new double[ETAFeatures.COUNT];
+        Arrays.fill(row, Double.NaN);
+        row[DISTANCE] = distanceKm;
+        return row;
+    }
+}
@@ -0,0 +1,93 @@
+package com.dpd.uk.eta.service;
+
+import com.dpd.uk.eta.history.ETAEventLog;
+import com.dpd.uk.eta.model.ETACalculation;
+import com.dpd.uk.eta.model.TrafficFactors;
+import com.dpd.uk.eta.repository.ETACalculationRepository;
+import com.dpd.uk.eta.store.ActiveETAStore;
+import com.dpd.uk.eta.store.ArrivalIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ETACalculationServiceTest {
+    
+    private final ActiveETAStore activeETAStore = mock(ActiveETAStore.class);
+    private ETACalculationService service;
+    
+    @BeforeEach
+    void setUp() {
+        service = new ETACalculationService(activeETAStore, mock(ETACalculationRepository.class),
+            mock(ETAEventLog.class), mock(ArrivalIndex.class), mock(TrafficDataService.class),
+            mock(HistoricalDataService.class), mock(DepotConstraintsService.class),
+            mock(VehicleTelematicsService.class), mock(ETANotificationService.class),
+            mock(DeliveryAccuracyService.class), mock(ExecutorService.class), mock(ETAModelService.class),
+            new ObjectMapper());
+    }
+    
+    @Test
+    void partialTrafficUpdateKeepsTheStoredMultiplier() {
+        stored(new TrafficFactors(1.5, "MODERATE", 2, 1L, true));
+        
+        service.updateETA("P1", Map.of("traffic", Map.of("congestionLevel", "HEAVY")));
+        
+        ETACalculation updated = saved();
+        assertThat(updated.getTrafficFactors().multiplier()).isEqualTo(1.5);
+        assertThat(updated.getTrafficFactors().congestionLevel()).isEqualTo("HEAVY");
+        assertThat(updated.getTrafficFactors().incidents()).isEqualTo(2);
+        assertThat(updated.getTrafficFactors().fallback()).isFalse();
+        assertThat(updated.getTrafficFactors().lastUpdated()).isGreaterThan(1L);
+        assertThat(updated.getEstimatedMinutes()).isEqualTo(90);
+    }
+    
+    @Test
+    void firstTrafficUpdateWithoutMultiplierDefaultsToNeutral() {
+        stored(null);
+        
+        service.updateETA("P1", Map.of("traffic", Map.of("congestionLevel", "HEAVY")));
+        
+        assertThat(saved().getTrafficFactors().multiplier()).isEqualTo(1.0);
+        assertThat(saved().getEstimatedMinutes()).isEqualTo(60);
+    }
+    
+    @Test
+    void rejectsMalformedUpdates() {
+        stored(new TrafficFactors(1.5, "MODERATE", 0, 1L, false));
+        
+        assertThatThrownBy(() -> service.updateETA("P1", Map.of("traffic", "HEAVY")))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.updateETA("P1", Map.of("traffic", Map.of("multiplier", 0))))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.updateETA("P1", Map.of("traffic", Map.of("multiplier", "fast"))))
+            .isInstanceOf(IllegalArgumentException.class);
+        verify(activeETAStore, never()).put(any());
+    }
+    
+    private void stored(TrafficFactors trafficFactors) {
+        when(activeETAStore.get("P1")).thenReturn(Optional.of(ETACalculation.builder()
+            .parcelId("P1")
+            .depotId("LONDON_DEPOT")
+            .isActive(true)
+            .trafficFactors(trafficFactors)
+            .build()));
+    }
+    
+    private ETACalculation saved() {
+        ArgumentCaptor<ETACalculation> captor = ArgumentCaptor.forClass(ETACalculation.class);
+        verify(activeETAStore).put(captor.capture());
+        return captor.getValue();
+    }
+}
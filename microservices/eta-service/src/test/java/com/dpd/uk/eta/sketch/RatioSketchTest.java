@@ -0,0 +1,95 @@
+package com.dpd.uk.eta.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+class RatioSketchTest {
+    
+    private static final double[] QUANTILES = {0.0, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1.0};
+    
+    @Test
+    void emptySketchHasNoQuantiles() {
+        RatioSketch sketch = new RatioSketch();
+        
+        assertThat(sketch.count()).isZero();
+        assertThat(sketch.quantile(0.5)).isNaN();
+    }
+    
+    @Test
+    void quantilesAreWithinTheRelativeAccuracy() {
+        double[] ratios = ratios(new Random(42), 5000);
+        RatioSketch sketch = new RatioSketch();
+        Arrays.stream(ratios).forEach(sketch::add);
+        
+        assertThat(sketch.count()).isEqualTo(ratios.length);
+        for (double q : QUANTILES) {
+            assertThat(sketch.quantile(q)).as("q=%s", q).isCloseTo(exact(ratios, q), withinPercentage(2.01));
+        }
+    }
+    
+    @Test
+    void ignoresRatiosThatAreNotPositiveAndFinite() {
+        RatioSketch sketch = new RatioSketch();
+        sketch.add(0);
+        sketch.add(-1.5);
+        sketch.add(Double.NaN);
+        sketch.add(Double.POSITIVE_INFINITY);
+        sketch.add(1.0);
+        
+        assertThat(sketch.count()).isEqualTo(1);
+        assertThat(sketch.quantile(0.5)).isCloseTo(1.0, withinPercentage(2.01));
+    }
+    
+    @Test
+    void outliersClampToTheEndBuckets() {
+        RatioSketch sketch = new RatioSketch();
+        sketch.add(0.001);
+        sketch.add(500);
+        
+        assertThat(sketch.quantile(0.0)).isCloseTo(0.1, withinPercentage(2.01));
+        assertThat(sketch.quantile(1.0)).isCloseTo(10.0, withinPercentage(2.01));
+    }
+    
+    @Test
+    void mergeMatchesASketchOfAllValues() {
+        Random random = new Random(7);
+        double[] first = ratios(random, 2000);
+        double[] second = ratios(random, 3000);
+        RatioSketch left = new RatioSketch();
+        RatioSketch right = new RatioSketch();
+        RatioSketch combined = new RatioSketch();
+        Arrays.stream(first).forEach(left::add);
+        Arrays.stream(second).forEach(right::add);
+        Arrays.stream(first).forEach(combined::add);
+        Arrays.stream(second).forEach(combined::add);
+        
+        left.merge(right);
+        
+        assertThat(left.count()).isEqualTo(combined.count());
+        for (double q : QUANTILES) {
+            assertThat(left.quantile(q)).as("q=%s", q).isEqualTo(combined.quantile(q));
+        }
+        assertThat(right.count()).isEqualTo(second.length);
+    }
+    
+    // Log-normal around 1.0, roughly the spread of actual / predicted durations
+    private static double[] ratios(Random random, int n) {
+        double[] ratios = new double[n];
+        for (int i = 0; i < n; i++) {
+            ratios[i] = Math.exp(random.nextGaussian() * 0.3);
+        }
+        return ratios;
+    }
+    
+    private static double exact(double[] values, double q) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.max(1, Math.ceil(q * sorted.length));
+        return sorted[rank - 1];
+    }
+}
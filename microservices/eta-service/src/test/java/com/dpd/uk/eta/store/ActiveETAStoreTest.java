@@ -0,0 +1,143 @@
+package com.dpd.uk.eta.store;
+
+import com.dpd.uk.eta.history.ETAEventLog;
+import com.dpd.uk.eta.model.ETACalculation;
+import com.dpd.uk.eta.repository.ETACalculationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ActiveETAStoreTest {
+    
+    private static final String DEPOT = "LONDON_DEPOT";
+    
+    private final MutableClock clock = new MutableClock(LocalDateTime.of(2026, 3, 2, 8, 0).toInstant(ZoneOffset.UTC));
+    private final ETACalculationRepository repository = mock(ETACalculationRepository.class);
+    private final List<ETACalculation> changes = new ArrayList<>();
+    private ETAWriteCoalescer coalescer;
+    private ActiveETAStore store;
+    
+    @BeforeEach
+    void setUp() {
+        coalescer = new ETAWriteCoalescer(repository, clock);
+        ReflectionTestUtils.setField(coalescer, "maxPending", 100);
+        ReflectionTestUtils.setField(coalescer, "maxBatch", 100);
+        ReflectionTestUtils.setField(coalescer, "maxBuffered", 100);
+        ReflectionTestUtils.setField(coalescer, "flushIntervalMs", 1000L);
+        ReflectionTestUtils.setField(coalescer, "maxBackoffMs", 30000L);
+        store = new ActiveETAStore(repository, coalescer, mock(ETAEventLog.class),
+            List.of((previous, current) -> changes.add(current)), clock);
+        ReflectionTestUtils.setField(store, "tombstoneSeconds", 60L);
+    }
+    
+    @Test
+    void deliveredParcelIsNotReloadedFromTheUnflushedActiveRow() {
+        ETACalculation active = calculation("P1", true);
+        store.put(active);
+        store.put(active.toBuilder().isActive(false).build());
+        // Mongo still holds the active version until the coalescer flushes
+        when(repository.findByParcelIdAndIsActiveTrue("P1")).thenReturn(Optional.of(active));
+        when(repository.findByDepotIdAndIsActiveTrue(DEPOT)).thenReturn(List.of(active));
+        changes.clear();
+        
+        assertThat(store.get("P1")).isEmpty();
+        assertThat(store.getByDepot(DEPOT)).isEmpty();
+        assertThat(changes).isEmpty();
+        
+        coalescer.flush();
+        verify(repository).upsertAll(List.of(active.toBuilder().isActive(false).build()));
+        
+        // A query that started before the flush may still return the active row
+        assertThat(store.get("P1")).isEmpty();
+        assertThat(changes).isEmpty();
+    }
+    
+    @Test
+    void tombstonesOutliveAFailedFlush() {
+        ETACalculation active = calculation("P1", true);
+        store.put(active);
+        doThrow(new IllegalStateException("Mongo down")).when(repository).upsertAll(anyList());
+        store.put(active.toBuilder().isActive(false).build());
+        when(repository.findByParcelIdAndIsActiveTrue("P1")).thenReturn(Optional.of(active));
+        
+        coalescer.flush();
+        clock.advance(Duration.ofMinutes(5));
+        store.evictTombstones();
+        
+        assertThat(store.get("P1")).isEmpty();
+        
+        // Once flushed and past the grace period, active rows in Mongo are trusted again
+        reset(repository);
+        when(repository.findByParcelIdAndIsActiveTrue("P1")).thenReturn(Optional.of(active));
+        coalescer.flush();
+        clock.advance(Duration.ofMinutes(5));
+        store.evictTombstones();
+        
+        assertThat(store.get("P1")).contains(active);
+    }
+    
+    @Test
+    void reactivatedParcelIsServedAgain() {
+        ETACalculation active = calculation("P1", true);
+        store.put(active);
+        store.put(active.toBuilder().isActive(false).build());
+        store.put(active);
+        
+        assertThat(store.get("P1")).contains(active);
+    }
+    
+    private ETACalculation calculation(String parcelId, boolean isActive) {
+        return ETACalculation.builder()
+            .id("id-" + parcelId)
+            .parcelId(parcelId)
+            .depotId(DEPOT)
+            .isActive(isActive)
+            .estimatedArrival(LocalDateTime.now(clock).plusHours(1))
+            .build();
+    }
+    
+    private static final class MutableClock extends Clock {
+        private Instant now;
+        
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+        
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+        
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+        
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
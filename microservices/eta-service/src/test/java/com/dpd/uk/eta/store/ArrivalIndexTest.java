@@ -0,0 +1,149 @@
+package com.dpd.uk.eta.store;
+
+import com.dpd.uk.eta.model.ETACalculation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArrivalIndexTest {
+    
+    private static final String DEPOT = "LONDON_DEPOT";
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 2, 10, 0);
+    
+    private final MutableClock clock = new MutableClock(START.toInstant(ZoneOffset.UTC));
+    private final List<String> announced = new ArrayList<>();
+    private ArrivalIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        index = new ArrivalIndex(24, clock);
+        index.subscribe("test", 15, calculation -> announced.add(calculation.getParcelId()));
+    }
+    
+    @Test
+    void arrivingReadsTheWindowSoonestFirst() {
+        place("P1", 30);
+        place("P2", 5);
+        place("P3", 120);
+        
+        assertThat(index.arriving(DEPOT, 60)).extracting(ETACalculation::getParcelId).containsExactly("P2", "P1");
+    }
+    
+    @Test
+    void announcesOnceWhileInsideTheWindow() {
+        place("P1", 10);
+        place("P1", 12);
+        
+        assertThat(announced).containsExactly("P1");
+    }
+    
+    @Test
+    void announcesWhenTimeBringsTheArrivalIntoTheWindow() {
+        place("P1", 20);
+        assertThat(announced).isEmpty();
+        
+        tickAfter(4);
+        assertThat(announced).isEmpty();
+        
+        tickAfter(1);
+        assertThat(announced).containsExactly("P1");
+    }
+    
+    @Test
+    void announcesAgainAfterBeingPushedOutAndReEntering() {
+        place("P1", 10);
+        place("P1", 30);
+        place("P1", 10);
+        
+        assertThat(announced).containsExactly("P1", "P1");
+    }
+    
+    @Test
+    void dropsPassedMinutesAndTheirNotificationState() {
+        tickAfter(0);
+        place("P1", 1);
+        assertThat(announced).containsExactly("P1");
+        
+        // One tick per minute, as scheduled; the minute P1 arrives in must be dropped
+        tickAfter(1);
+        tickAfter(1);
+        assertThat(index.arriving(DEPOT, 60)).isEmpty();
+        
+        // Forgotten once dropped, so a new estimate is announced afresh
+        place("P1", 5);
+        assertThat(announced).containsExactly("P1", "P1");
+    }
+    
+    @Test
+    void forgetsOverdueParcels() {
+        place("P1", 5);
+        clock.advance(Duration.ofMinutes(10));
+        place("P1", -2);
+        place("P1", 5);
+        
+        assertThat(announced).containsExactly("P1", "P1");
+    }
+    
+    @Test
+    void inactiveParcelsLeaveTheIndex() {
+        place("P1", 5);
+        index.onChange(null, calculation("P1", 5).toBuilder().isActive(false).build());
+        
+        assertThat(index.arriving(DEPOT, 60)).isEmpty();
+    }
+    
+    private void place(String parcelId, int minutesFromNow) {
+        index.onChange(null, calculation(parcelId, minutesFromNow));
+    }
+    
+    private ETACalculation calculation(String parcelId, int minutesFromNow) {
+        return ETACalculation.builder()
+            .parcelId(parcelId)
+            .depotId(DEPOT)
+            .isActive(true)
+            .estimatedArrival(LocalDateTime.now(clock).plusMinutes(minutesFromNow))
+            .build();
+    }
+    
+    private void tickAfter(int minutes) {
+        clock.advance(Duration.ofMinutes(minutes));
+        index.tick();
+    }
+    
+    private static final class MutableClock extends Clock {
+        private Instant now;
+        
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+        
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+        
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+        
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
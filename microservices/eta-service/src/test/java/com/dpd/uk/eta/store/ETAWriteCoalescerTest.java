@@ -0,0 +1,136 @@
+package com.dpd.uk.eta.store;
+
+import com.dpd.uk.eta.model.ETACalculation;
+import com.dpd.uk.eta.repository.ETACalculationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ETAWriteCoalescerTest {
+    
+    private final MutableClock clock = new MutableClock(LocalDateTime.of(2026, 3, 2, 8, 0).toInstant(ZoneOffset.UTC));
+    private final ETACalculationRepository repository = mock(ETACalculationRepository.class);
+    private ETAWriteCoalescer coalescer;
+    
+    @BeforeEach
+    void setUp() {
+        coalescer = new ETAWriteCoalescer(repository, clock);
+        ReflectionTestUtils.setField(coalescer, "maxPending", 2);
+        ReflectionTestUtils.setField(coalescer, "maxBuffered", 10);
+        ReflectionTestUtils.setField(coalescer, "maxBatch", 100);
+        ReflectionTestUtils.setField(coalescer, "flushIntervalMs", 1000L);
+        ReflectionTestUtils.setField(coalescer, "maxBackoffMs", 30000L);
+    }
+    
+    @Test
+    void failedFlushBacksOffInsteadOfRetryingOnEveryWrite() {
+        doThrow(new IllegalStateException("Mongo down")).when(repository).upsertAll(anyList());
+        for (int i = 1; i <= 5; i++) {
+            coalescer.enqueue(calculation("P" + i, true));
+        }
+        coalescer.flush();
+        verify(repository, times(1)).upsertAll(anyList());
+        
+        clock.advance(Duration.ofSeconds(1));
+        coalescer.flush();
+        verify(repository, times(2)).upsertAll(anyList());
+        
+        // The second failure doubles the backoff
+        clock.advance(Duration.ofSeconds(1));
+        coalescer.flush();
+        verify(repository, times(2)).upsertAll(anyList());
+        clock.advance(Duration.ofSeconds(1));
+        coalescer.flush();
+        verify(repository, times(3)).upsertAll(anyList());
+        assertThat(coalescer.isUnflushed("P5")).isTrue();
+    }
+    
+    @Test
+    void fullBufferShedsNewActiveParcelsButKeepsUpdatesAndRetirements() {
+        ReflectionTestUtils.setField(coalescer, "maxPending", 100);
+        ReflectionTestUtils.setField(coalescer, "maxBuffered", 2);
+        coalescer.enqueue(calculation("P1", true));
+        coalescer.enqueue(calculation("P2", true));
+        
+        coalescer.enqueue(calculation("P3", true));
+        coalescer.enqueue(calculation("P2", true).toBuilder().estimatedMinutes(42).build());
+        coalescer.enqueue(calculation("P4", false));
+        coalescer.flush();
+        
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ETACalculation>> written = ArgumentCaptor.forClass(List.class);
+        verify(repository).upsertAll(written.capture());
+        assertThat(written.getValue()).extracting(ETACalculation::getParcelId)
+            .containsExactlyInAnyOrder("P1", "P2", "P4");
+        assertThat(written.getValue()).filteredOn(calculation -> calculation.getParcelId().equals("P2"))
+            .extracting(ETACalculation::getEstimatedMinutes).containsExactly(42);
+    }
+    
+    @Test
+    void writerWaitingForSpaceIsAdmittedAfterAFlush() throws Exception {
+        ReflectionTestUtils.setField(coalescer, "maxPending", 100);
+        ReflectionTestUtils.setField(coalescer, "maxBuffered", 1);
+        ReflectionTestUtils.setField(coalescer, "enqueueTimeoutMs", 5000L);
+        coalescer.enqueue(calculation("P1", true));
+        
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> coalescer.enqueue(calculation("P2", true)));
+        coalescer.flush();
+        
+        waiting.get(1, TimeUnit.SECONDS);
+        assertThat(coalescer.isUnflushed("P2")).isTrue();
+    }
+    
+    private ETACalculation calculation(String parcelId, boolean isActive) {
+        return ETACalculation.builder()
+            .id("id-" + parcelId)
+            .parcelId(parcelId)
+            .depotId("LONDON_DEPOT")
+            .isActive(isActive)
+            .build();
+    }
+    
+    private static final class MutableClock extends Clock {
+        private Instant now;
+        
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+        
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+        
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+        
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
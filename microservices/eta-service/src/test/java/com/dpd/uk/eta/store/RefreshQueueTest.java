@@ -0,0 +1,161 @@
+package com.dpd.uk.eta.store;
+
+import com.dpd.uk.eta.model.ETACalculation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RefreshQueueTest {
+    
+    private static final String DEPOT = "LONDON_DEPOT";
+    
+    private final MutableClock clock = new MutableClock(LocalDateTime.of(2026, 3, 2, 8, 0).toInstant(ZoneOffset.UTC));
+    private RefreshQueue queue;
+    
+    @BeforeEach
+    void setUp() {
+        queue = new RefreshQueue(clock);
+        ReflectionTestUtils.setField(queue, "soonWindowMinutes", 30L);
+        ReflectionTestUtils.setField(queue, "soonIntervalSeconds", 60L);
+        ReflectionTestUtils.setField(queue, "nearWindowMinutes", 120L);
+        ReflectionTestUtils.setField(queue, "nearIntervalSeconds", 300L);
+        ReflectionTestUtils.setField(queue, "farIntervalSeconds", 3600L);
+    }
+    
+    @Test
+    void farArrivalsRefreshHourly() {
+        change("P1", Duration.ofHours(5));
+        
+        assertDueAfter("P1", Duration.ofHours(1));
+    }
+    
+    @Test
+    void farArrivalsAreDueWhenTheyReachTheNearWindow() {
+        change("P1", Duration.ofMinutes(150));
+        
+        assertDueAfter("P1", Duration.ofMinutes(30));
+    }
+    
+    @Test
+    void nearArrivalsRefreshEveryFewMinutes() {
+        change("P1", Duration.ofMinutes(90));
+        
+        assertDueAfter("P1", Duration.ofMinutes(5));
+    }
+    
+    @Test
+    void nearArrivalsAreDueWhenTheyReachTheSoonWindow() {
+        change("P1", Duration.ofMinutes(33));
+        
+        assertDueAfter("P1", Duration.ofMinutes(3));
+    }
+    
+    @Test
+    void soonAndOverdueArrivalsRefreshEveryMinute() {
+        change("P1", Duration.ofMinutes(10));
+        change("P2", Duration.ofMinutes(-10));
+        
+        clock.advance(Duration.ofSeconds(59));
+        assertThat(queue.pollDue(DEPOT, 10)).isEmpty();
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(queue.pollDue(DEPOT, 10)).containsExactlyInAnyOrder("P1", "P2");
+    }
+    
+    @Test
+    void polledParcelsAreRetriedUnlessRescheduled() {
+        change("P1", Duration.ofMinutes(10));
+        clock.advance(Duration.ofMinutes(1));
+        assertThat(queue.pollDue(DEPOT, 10)).containsExactly("P1");
+        assertThat(queue.pollDue(DEPOT, 10)).isEmpty();
+        
+        clock.advance(Duration.ofMinutes(1));
+        assertThat(queue.pollDue(DEPOT, 10)).containsExactly("P1");
+    }
+    
+    @Test
+    void pollsMostOverdueFirstUpToMax() {
+        change("P1", Duration.ofMinutes(90));
+        change("P2", Duration.ofMinutes(10));
+        change("P3", Duration.ofMinutes(33));
+        clock.advance(Duration.ofMinutes(10));
+        
+        assertThat(queue.pollDue(DEPOT, 2)).containsExactly("P2", "P3");
+        assertThat(queue.pollDue(DEPOT, 2)).containsExactly("P1");
+    }
+    
+    @Test
+    void rescheduleReplacesTheEarlierDueTime() {
+        change("P1", Duration.ofMinutes(10));
+        change("P1", Duration.ofHours(5));
+        clock.advance(Duration.ofMinutes(5));
+        
+        assertThat(queue.pollDue(DEPOT, 10)).isEmpty();
+    }
+    
+    @Test
+    void removedAndInactiveParcelsAreNotPolled() {
+        change("P1", Duration.ofMinutes(10));
+        change("P2", Duration.ofMinutes(10));
+        queue.remove(DEPOT, "P1");
+        queue.onChange(null, calculation("P2", Duration.ofMinutes(10)).toBuilder().isActive(false).build());
+        clock.advance(Duration.ofMinutes(5));
+        
+        assertThat(queue.pollDue(DEPOT, 10)).isEmpty();
+    }
+    
+    private void assertDueAfter(String parcelId, Duration due) {
+        clock.advance(due.minusSeconds(1));
+        assertThat(queue.pollDue(DEPOT, 10)).isEmpty();
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(queue.pollDue(DEPOT, 10)).containsExactly(parcelId);
+    }
+    
+    private void change(String parcelId, Duration untilArrival) {
+        queue.onChange(null, calculation(parcelId, untilArrival));
+    }
+    
+    private ETACalculation calculation(String parcelId, Duration untilArrival) {
+        return ETACalculation.builder()
+            .parcelId(parcelId)
+            .depotId(DEPOT)
+            .isActive(true)
+            .estimatedArrival(LocalDateTime.now(clock).plus(untilArrival))
+            .build();
+    }
+    
+    private static final class MutableClock extends Clock {
+        private Instant now;
+        
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+        
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+        
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+        
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
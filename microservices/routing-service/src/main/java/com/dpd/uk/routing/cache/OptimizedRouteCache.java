@@ -0,0 +1,159 @@
+package com.dpd.uk.routing.cache;
+
+import com.dpd.uk.routing.model.RouteOptimizationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of optimization results keyed by {@link RouteRequestDigest}.
+ * Concurrent identical requests share a single computation; failures are never cached.
+ * The caller that ran the solver persists the result and then calls {@link #complete}, or {@link #fail}
+ * if persisting failed. Until then the key stays in flight, so identical requests wait for the saved
+ * result rather than solving again, and see the failure if the save did not happen.
+ */
+@Slf4j
+@Component
+public class OptimizedRouteCache {
+    
+    private final Map<String, CachedEntry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<RouteOptimizationResult>> inFlight = new ConcurrentHashMap<>();
+    
+    @Value("${routing.optimization.cache-ttl-minutes:30}")
+    private long ttlMinutes;
+    
+    @Value("${routing.optimization.cache-max-entries:1000}")
+    private int maxEntries;
+    
+    public Lookup getOrCompute(String key, Supplier<RouteOptimizationResult> solver) {
+        RouteOptimizationResult cached = getIfPresent(key);
+        if (cached != null) {
+            return new Lookup(cached, null, null);
+        }
+        
+        CompletableFuture<RouteOptimizationResult> pending = new CompletableFuture<>();
+        CompletableFuture<RouteOptimizationResult> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            log.debug("Joining in-flight optimization for key: {}", key);
+            return new Lookup(null, existing, null);
+        }
+        
+        try {
+            // Another caller may have finished between the cache miss and claiming the key
+            cached = getIfPresent(key);
+            if (cached != null) {
+                inFlight.remove(key, pending);
+                pending.complete(cached);
+                return new Lookup(cached, null, null);
+            }
+            
+            return new Lookup(solver.get(), null, pending);
+            
+        } catch (RuntimeException e) {
+            inFlight.remove(key, pending);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Caches a computed result once it has been persisted and hands it to the requests waiting on it.
+     */
+    public void complete(String key, Lookup lookup) {
+        if (!lookup.computed()) {
+            return;
+        }
+        // Cached before leaving flight, so an identical request always finds one or the other
+        put(key, lookup.result());
+        inFlight.remove(key, lookup.claim);
+        lookup.claim.complete(lookup.result());
+    }
+    
+    /**
+     * Releases a computed result that could not be persisted; the requests waiting on it fail with {@code cause}.
+     */
+    public void fail(String key, Lookup lookup, RuntimeException cause) {
+        if (lookup.computed() && inFlight.remove(key, lookup.claim)) {
+            lookup.claim.completeExceptionally(cause);
+        }
+    }
+    
+    private RouteOptimizationResult getIfPresent(String key) {
+        CachedEntry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.result();
+    }
+    
+    private void put(String key, RouteOptimizationResult result) {
+        entries.put(key, new CachedEntry(result, System.currentTimeMillis() + ttlMinutes * 60_000));
+        if (entries.size() > maxEntries) {
+            evictExpiredOrOldest();
+        }
+    }
+    
+    public void evict(String key) {
+        entries.remove(key);
+    }
+    
+    private void evictExpiredOrOldest() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(entry -> entry.getValue().expiresAt() < now);
+        
+        while (entries.size() > maxEntries) {
+            entries.entrySet().stream()
+                .min(Map.Entry.comparingByValue((a, b) -> Long.compare(a.expiresAt(), b.expiresAt())))
+                .ifPresentOrElse(oldest -> entries.remove(oldest.getKey(), oldest.getValue()), entries::clear);
+        }
+    }
+    
+    /**
+     * Result of a cache lookup. {@link #computed} is true only for the caller that ran the solver, which must
+     * then {@link #complete} or {@link #fail} it. A request that joined another caller's computation gets its
+     * result from {@link #result}, which waits until that caller has persisted it.
+     */
+    public static final class Lookup {
+        private final RouteOptimizationResult result;
+        private final CompletableFuture<RouteOptimizationResult> shared;
+        private final CompletableFuture<RouteOptimizationResult> claim;
+        
+        private Lookup(RouteOptimizationResult result, CompletableFuture<RouteOptimizationResult> shared,
+                       CompletableFuture<RouteOptimizationResult> claim) {
+            this.result = result;
+            this.shared = shared;
+            this.claim = claim;
+        }
+        
+        public boolean computed() {
+            return claim != null;
+        }
+        
+        public RouteOptimizationResult result() {
+            if (shared == null) {
+                return result;
+            }
+            try {
+                return shared.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+    }
+    
+    private record CachedEntry(RouteOptimizationResult result, long expiresAt) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.dpd.uk.routing.cache;
+
+import com.dpd.uk.common.model.Address;
+import com.dpd.uk.routing.model.RouteOptimizationRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Canonical digest of everything that influences an optimization result:
+ * the ordered stop list plus algorithm, constraints and tuning parameters.
+ */
+public final class RouteRequestDigest {
+    
+    private RouteRequestDigest() {
+    }
+    
+    public static String of(RouteOptimizationRequest request) {
+        StringBuilder canonical = new StringBuilder(64 + request.getStops().size() * 48);
+        
+        append(canonical, request.getDepotId());
+        append(canonical, request.getDriverId());
+        append(canonical, request.getVehicleId());
+        append(canonical, request.getAlgorithm() != null ? request.getAlgorithm().toUpperCase(Locale.ROOT) : null);
+        
+        for (Address stop : request.getStops()) {
+            canonical.append(String.format(Locale.ROOT, "%.6f,%.6f,", stop.getLatitude(), stop.getLongitude()));
+            append(canonical, stop.getPostcode() != null ? stop.getPostcode().replace(" ", "").toUpperCase(Locale.ROOT) : null);
+        }
+        
+        append(canonical, request.getMaxDurationHours());
+        append(canonical, request.getMaxDistanceKm());
+        append(canonical, request.getMaxStops());
+        append(canonical, request.getVehicleCapacityWeight());
+        append(canonical, request.getVehicleCapacityVolume());
+        append(canonical, request.getMaxIterations());
+        append(canonical, request.getPopulationSize());
+        append(canonical, request.getMutationRate());
+        append(canonical, request.getCrossoverRate());
+        append(canonical, request.getCoolingRate());
+        append(canonical, request.getTabuListSize());
+        append(canonical, request.getPriority());
+        append(canonical, request.getConsiderTraffic());
+        append(canonical, request.getConsiderTimeWindows());
+        append(canonical, request.getInitialSequence());
+        append(canonical, sorted(request.getConstraints()));
+        append(canonical, sorted(request.getPreferences()));
+        
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static void append(StringBuilder canonical, Object value) {
+        canonical.append(value != null ? value : "-").append('|');
+    }
+    
+    private static Map<String, Object> sorted(Map<String, Object> values) {
+        return values != null ? new TreeMap<>(values) : null;
+    }
+}
@@ -0,0 +1,55 @@
+package com.dpd.uk.routing.config;
+
+import com.dpd.uk.common.model.Route;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+/**
+ * Route lives in common-lib without mapping annotations, so its indexes are declared here.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RouteIndexConfig {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(Route.class);
+            
+            // The routeId index used to be non-unique; replace it, since Mongo rejects a changed definition under one name
+            indexOps.getIndexInfo().stream()
+                .filter(index -> index.getName().equals("routeId") && !index.isUnique())
+                .findFirst()
+                .ifPresent(index -> indexOps.dropIndex("routeId"));
+            indexOps.createIndex(new Index().on("routeId", Sort.Direction.ASC).unique().named("routeId"));
+            indexOps.createIndex(new Index()
+                .on("depotId", Sort.Direction.ASC)
+                .on("status", Sort.Direction.ASC)
+                .named("depotId_status"));
+            indexOps.createIndex(new Index()
+                .on("driverId", Sort.Direction.ASC)
+                .on("status", Sort.Direction.ASC)
+                .named("driverId_status"));
+            indexOps.createIndex(new Index()
+                .on("depotId", Sort.Direction.ASC)
+                .on("driverId", Sort.Direction.ASC)
+                .on("plannedStartTime", Sort.Direction.DESC)
+                .named("depotId_driverId_plannedStartTime"));
+            
+            log.info("Route indexes ensured");
+            
+        } catch (Exception e) {
+            log.error("Failed to ensure route indexes", e);
+        }
+    }
+}
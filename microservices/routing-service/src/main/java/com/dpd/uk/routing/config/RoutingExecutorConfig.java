@@ -0,0 +1,47 @@
+package com.dpd.uk.routing.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executors for route optimization. Matrix building and batch fan-out block on the mapping API and Mongo,
+ * so they run on virtual threads; the optimizers are CPU-bound and share a fixed platform pool sized to
+ * the cores, with a bounded queue so overload is rejected instead of piling up. Batches hold a permit per
+ * in-flight plan so they never submit more than the pool can accept.
+ */
+@Configuration
+public class RoutingExecutorConfig {
+    
+    @Bean(destroyMethod = "close")
+    public ExecutorService routingIoExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("routing-io-", 0).factory());
+    }
+    
+    @Bean(destroyMethod = "close")
+    public ExecutorService optimizerExecutor(@Value("${routing.optimization.worker-threads:0}") int threads,
+                                             @Value("${routing.optimization.worker-queue-capacity:64}") int queueCapacity) {
+        int size = workerThreads(threads);
+        return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            Thread.ofPlatform().name("route-optimizer-", 0).factory(),
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    @Bean
+    public Semaphore optimizerBatchPermits(@Value("${routing.optimization.worker-threads:0}") int threads,
+                                           @Value("${routing.optimization.worker-queue-capacity:64}") int queueCapacity) {
+        return new Semaphore(workerThreads(threads) + queueCapacity);
+    }
+    
+    private static int workerThreads(int threads) {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+}
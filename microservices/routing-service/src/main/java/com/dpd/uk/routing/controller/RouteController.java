@@ -4,6 +4,7 @@ import com.dpd.uk.common.model.Address;
 import com.dpd.uk.common.model.Route;
 import com.dpd.uk.routing.model.RouteOptimizationRequest;
 import com.dpd.uk.routing.model.RouteOptimizationResult;
+import com.dpd.uk.routing.model.RouteSummary;
 import com.dpd.uk.routing.service.RouteOptimizationService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -35,6 +36,19 @@ public class RouteController {
         }
     }
     
+    @PostMapping("/optimize/batch")
+    public ResponseEntity<List<RouteOptimizationResult>> optimizeRoutes(@Valid @RequestBody List<RouteOptimizationRequest> requests) {
+        log.info("Received batch route optimization request for {} plans", requests.size());
+        
+        try {
+            List<RouteOptimizationResult> results = routeOptimizationService.optimizeRoutes(requests);
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            log.error("Error optimizing batch of {} routes", requests.size(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
     @GetMapping("/{routeId}")
     public ResponseEntity<Route> getRoute(@PathVariable String routeId) {
         log.info("Received route request for route: {}", routeId);
@@ -43,11 +57,20 @@ public class RouteController {
         return route != null ? ResponseEntity.ok(route) : ResponseEntity.notFound().build();
     }
     
+    @PostMapping("/{routeId}/snapshot")
+    public ResponseEntity<Void> publishRouteSnapshot(@PathVariable String routeId) {
+        log.info("Received route snapshot request for route: {}", routeId);
+        
+        return routeOptimizationService.publishRouteSnapshot(routeId)
+            ? ResponseEntity.accepted().build()
+            : ResponseEntity.notFound().build();
+    }
+    
     @GetMapping("/depot/{depotId}")
-    public ResponseEntity<List<Route>> getRoutesByDepot(@PathVariable String depotId) {
+    public ResponseEntity<List<RouteSummary>> getRoutesByDepot(@PathVariable String depotId) {
         log.info("Received routes request for depot: {}", depotId);
         
-        List<Route> routes = routeOptimizationService.getRoutesByDepot(depotId);
+        List<RouteSummary> routes = routeOptimizationService.getRoutesByDepot(depotId);
         return ResponseEntity.ok(routes);
     }
     
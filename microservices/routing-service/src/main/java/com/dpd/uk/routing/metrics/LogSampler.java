@@ -0,0 +1,18 @@
+package com.dpd.uk.routing.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples per-request log lines on the optimization hot path; aggregate numbers come from {@link OptimizerMetrics}.
+ */
+public final class LogSampler {
+    
+    private static final int SAMPLE_RATE = 100; // 1 in 100 requests
+    
+    private LogSampler() {
+    }
+    
+    public static boolean sample() {
+        return ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0;
+    }
+}
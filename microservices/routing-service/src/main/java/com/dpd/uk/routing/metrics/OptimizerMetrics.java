@@ -0,0 +1,108 @@
+package com.dpd.uk.routing.metrics;
+
+import com.dpd.uk.routing.model.RouteOptimizationResult;
+import com.dpd.uk.routing.optimizer.SearchTrace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the optimization hot path, tagged by algorithm and stop-count bucket
+ * and exported through the prometheus actuator endpoint.
+ */
+@Component
+@RequiredArgsConstructor
+public class OptimizerMetrics {
+    
+    private final MeterRegistry meterRegistry;
+    
+    public void recordMatrixBuild(int stops, long nanos) {
+        Timer.builder("routing.matrix.build")
+            .description("Distance and time matrix build time")
+            .tag("stops", stopBucket(stops))
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public void recordSolve(String algorithm, int stops, long nanos, RouteOptimizationResult result) {
+        String bucket = stopBucket(stops);
+        String warmStart = String.valueOf(Boolean.TRUE.equals(result.getWarmStarted()));
+        
+        Timer.builder("routing.optimizer.solve")
+            .description("Optimizer solve time")
+            .tags("algorithm", algorithm, "stops", bucket, "warm_start", warmStart)
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+        
+        if (result.getIterations() != null && nanos > 0) {
+            summary("routing.optimizer.iterations.rate", "iterations/s", algorithm, bucket)
+                .record(result.getIterations() * 1_000_000_000.0 / nanos);
+        }
+        
+        Map<String, Object> metrics = result.getMetrics();
+        if (metrics == null) {
+            return;
+        }
+        if (metrics.get(SearchTrace.MOVES_EVALUATED) instanceof Number moves) {
+            summary("routing.optimizer.moves", "moves", algorithm, bucket).record(moves.doubleValue());
+        }
+        if (metrics.get(SearchTrace.INITIAL_COST) instanceof Number initial
+                && metrics.get(SearchTrace.BEST_COST) instanceof Number best
+                && initial.doubleValue() > 0) {
+            summary("routing.optimizer.improvement", "ratio", algorithm, bucket)
+                .record(1.0 - best.doubleValue() / initial.doubleValue());
+        }
+        if (metrics.get(SearchTrace.IMPROVEMENT_CURVE) instanceof List<?> curve && !curve.isEmpty()
+                && curve.get(0) instanceof Number start && start.doubleValue() > 0) {
+            // Share of the final improvement reached at each quarter of the search
+            for (int point = 1; point < curve.size(); point++) {
+                if (curve.get(point) instanceof Number cost) {
+                    DistributionSummary.builder("routing.optimizer.improvement.curve")
+                        .baseUnit("ratio")
+                        .tags("algorithm", algorithm, "stops", bucket,
+                            "progress", String.valueOf(point * 100 / (curve.size() - 1)))
+                        .register(meterRegistry)
+                        .record(1.0 - cost.doubleValue() / start.doubleValue());
+                }
+            }
+        }
+    }
+    
+    public void recordCacheLookup(boolean hit) {
+        Counter.builder("routing.optimizer.cache")
+            .description("Optimized route cache lookups")
+            .tag("result", hit ? "hit" : "miss")
+            .register(meterRegistry)
+            .increment();
+    }
+    
+    private DistributionSummary summary(String name, String unit, String algorithm, String bucket) {
+        return DistributionSummary.builder(name)
+            .baseUnit(unit)
+            .tags("algorithm", algorithm, "stops", bucket)
+            .register(meterRegistry);
+    }
+    
+    static String stopBucket(int stops) {
+        if (stops <= 10) {
+            return "1-10";
+        }
+        if (stops <= 25) {
+            return "11-25";
+        }
+        if (stops <= 50) {
+            return "26-50";
+        }
+        if (stops <= 100) {
+            return "51-100";
+        }
+        return "100+";
+    }
+}
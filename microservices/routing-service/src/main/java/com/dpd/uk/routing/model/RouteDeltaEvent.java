@@ -0,0 +1,53 @@
+package com.dpd.uk.routing.model;
+
+import com.dpd.uk.common.model.Route;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Compact route change event. Carries only what changed, without addresses;
+ * consumers that fall behind the version sequence request a full snapshot.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteDeltaEvent {
+    
+    private String routeId;
+    private String depotId;
+    private String driverId;
+    private Long version;
+    private DeltaType type;
+    
+    private Route.RouteStatus status;
+    private Double totalDistanceKm;
+    private Integer estimatedDurationMinutes;
+    
+    private List<StopDelta> stops;
+    private Long timestamp;
+    
+    public enum DeltaType {
+        CREATED,
+        STATUS_CHANGED,
+        STOPS_CHANGED
+    }
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StopDelta {
+        private String stopId;
+        private String parcelId;
+        private String postcode;
+        private Integer sequence;
+        private Route.RouteStop.StopStatus status;
+        private Integer estimatedArrivalMinutes;
+        private Boolean removed;
+    }
+}
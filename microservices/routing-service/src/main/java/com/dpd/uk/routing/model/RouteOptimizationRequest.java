@@ -50,6 +50,9 @@ public class RouteOptimizationRequest {
     private Double coolingRate;
     private Integer tabuListSize;
     
+    // Warm-start seed: stop indices in visiting order, filled from recent routes when absent
+    private List<Integer> initialSequence;
+    
     private String priority; // HIGH, MEDIUM, LOW
     private Boolean allowRerouting;
     private Boolean considerTraffic;
@@ -36,6 +36,7 @@ public class RouteOptimizationResult {
     private Integer totalStops;
     private Double utilizationRate;
     private Double costEstimate;
+    private Boolean warmStarted;
     
     // Route quality indicators
     private Double routeEfficiency;
@@ -0,0 +1,44 @@
+package com.dpd.uk.routing.model;
+
+import com.dpd.uk.common.model.Route;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Route listing view without the embedded stops and segments.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteSummary {
+    
+    private String routeId;
+    private String depotId;
+    private String driverId;
+    private String vehicleId;
+    private Route.RouteStatus status;
+    
+    private Integer stopCount;
+    private Double totalDistanceKm;
+    private Integer estimatedDurationMinutes;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime plannedStartTime;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime plannedEndTime;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime actualStartTime;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime actualEndTime;
+    
+    private String optimizationAlgorithm;
+}
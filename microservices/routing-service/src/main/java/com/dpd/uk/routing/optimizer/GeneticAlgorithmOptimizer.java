@@ -1,5 +1,6 @@
 package com.dpd.uk.routing.optimizer;
 
+import com.dpd.uk.routing.metrics.LogSampler;
 import com.dpd.uk.routing.model.RouteOptimizationRequest;
 import com.dpd.uk.routing.model.RouteOptimizationResult;
 import lombok.RequiredArgsConstructor;
@@ -24,7 +25,10 @@ public class GeneticAlgorithmOptimizer {
                                           Map<String, Map<String, Integer>> timeMatrix) {
         
         long startTime = System.currentTimeMillis();
-        log.info("Starting genetic algorithm optimization for {} stops", request.getStops().size());
+        boolean logRun = log.isDebugEnabled() && LogSampler.sample();
+        if (logRun) {
+            log.debug("Starting genetic algorithm optimization for {} stops", request.getStops().size());
+        }
         
         int populationSize = request.getPopulationSize() != null ? request.getPopulationSize() : DEFAULT_POPULATION_SIZE;
         int maxIterations = request.getMaxIterations() != null ? request.getMaxIterations() : DEFAULT_MAX_ITERATIONS;
@@ -32,14 +36,17 @@ public class GeneticAlgorithmOptimizer {
         double crossoverRate = request.getCrossoverRate() != null ? request.getCrossoverRate() : DEFAULT_CROSSOVER_RATE;
         
         // Initialize population
-        List<Individual> population = initializePopulation(request.getStops().size(), populationSize);
+        List<Individual> population = initializePopulation(request.getStops().size(), populationSize, request.getInitialSequence());
         
         Individual bestIndividual = null;
+        double bestDistance = Double.NaN;
         int iterations = 0;
+        SearchTrace trace = new SearchTrace(maxIterations);
         
         for (int generation = 0; generation < maxIterations; generation++) {
             // Evaluate fitness
             evaluatePopulation(population, distanceMatrix, timeMatrix, request);
+            trace.addMoves(population.size());
             
             // Find best individual
             Individual currentBest = population.stream()
@@ -48,11 +55,19 @@ public class GeneticAlgorithmOptimizer {
             
             if (bestIndividual == null || currentBest.getFitness() > bestIndividual.getFitness()) {
                 bestIndividual = currentBest;
+                bestDistance = calculateTotalDistance(bestIndividual.getSequence(), distanceMatrix);
+                if (generation == 0) {
+                    trace.start(bestDistance);
+                }
             }
+            // Every generation, so the curve has no gaps and ends at the last generation run
+            trace.record(generation, bestDistance);
             
             // Check convergence
             if (isConverged(population)) {
-                log.info("Genetic algorithm converged after {} generations", generation);
+                if (logRun) {
+                    log.debug("Genetic algorithm converged after {} generations", generation);
+                }
                 break;
             }
             
@@ -94,15 +109,30 @@ public class GeneticAlgorithmOptimizer {
         
         long optimizationTime = System.currentTimeMillis() - startTime;
         
-        log.info("Genetic algorithm completed in {}ms after {} iterations", optimizationTime, iterations);
+        if (logRun) {
+            log.debug("Genetic algorithm completed in {}ms after {} iterations", optimizationTime, iterations);
+        }
         
-        return createResult(bestIndividual, distanceMatrix, timeMatrix, optimizationTime, iterations);
+        return createResult(bestIndividual, distanceMatrix, timeMatrix, optimizationTime, iterations, trace);
     }
     
-    private List<Individual> initializePopulation(int numStops, int populationSize) {
+    private List<Individual> initializePopulation(int numStops, int populationSize, List<Integer> seed) {
         List<Individual> population = new ArrayList<>();
         
-        for (int i = 0; i < populationSize; i++) {
+        if (seed != null) {
+            // Warm start: keep the seed and fill half the population with perturbed copies of it
+            population.add(new Individual(seed));
+            while (population.size() < populationSize / 2) {
+                Individual variant = new Individual(seed);
+                int swaps = 1 + (int) (Math.random() * Math.max(1, numStops / 10));
+                for (int s = 0; s < swaps; s++) {
+                    mutate(variant);
+                }
+                population.add(variant);
+            }
+        }
+        
+        while (population.size() < populationSize) {
             List<Integer> sequence = new ArrayList<>();
             for (int j = 0; j < numStops; j++) {
                 sequence.add(j);
@@ -262,7 +292,8 @@ public class GeneticAlgorithmOptimizer {
                                                Map<String, Map<String, Double>> distanceMatrix,
                                                Map<String, Map<String, Integer>> timeMatrix,
                                                long optimizationTime, 
-                                               int iterations) {
+                                               int iterations,
+                                               SearchTrace trace) {
         
         List<Integer> sequence = bestIndividual.getSequence();
         double totalDistance = calculateTotalDistance(sequence, distanceMatrix);
@@ -281,6 +312,7 @@ public class GeneticAlgorithmOptimizer {
             .optimalityGap(0.0) // Unknown for genetic algorithms
             .totalStops(sequence.size())
             .routeEfficiency(1.0 / (1.0 + totalDistance))
+            .metrics(trace.toMetrics())
             .build();
     }
     
@@ -1,5 +1,6 @@
 package com.dpd.uk.routing.optimizer;
 
+import com.dpd.uk.routing.metrics.LogSampler;
 import com.dpd.uk.routing.model.RouteOptimizationRequest;
 import com.dpd.uk.routing.model.RouteOptimizationResult;
 import lombok.RequiredArgsConstructor;
@@ -18,7 +19,10 @@ public class GreedyOptimizer {
                                           Map<String, Map<String, Integer>> timeMatrix) {
         
         long startTime = System.currentTimeMillis();
-        log.info("Starting greedy optimization for {} stops", request.getStops().size());
+        boolean logRun = log.isDebugEnabled() && LogSampler.sample();
+        if (logRun) {
+            log.debug("Starting greedy optimization for {} stops", request.getStops().size());
+        }
         
         int numStops = request.getStops().size();
         List<Integer> solution = new ArrayList<>();
@@ -42,11 +46,24 @@ public class GreedyOptimizer {
             currentStop = nextStop;
         }
         
+        SearchTrace trace = new SearchTrace(1);
+        trace.addMoves((long) numStops * (numStops - 1) / 2);
+        trace.start(calculateTotalDistance(solution, distanceMatrix));
+        
+        // Keep the warm-start sequence when it beats the nearest-neighbour tour
+        List<Integer> seed = request.getInitialSequence();
+        if (seed != null && calculateTotalDistance(seed, distanceMatrix) < calculateTotalDistance(solution, distanceMatrix)) {
+            solution = new ArrayList<>(seed);
+        }
+        trace.record(1, calculateTotalDistance(solution, distanceMatrix));
+        
         long optimizationTime = System.currentTimeMillis() - startTime;
         
-        log.info("Greedy optimization completed in {}ms", optimizationTime);
+        if (logRun) {
+            log.debug("Greedy optimization completed in {}ms", optimizationTime);
+        }
         
-        return createResult(solution, distanceMatrix, timeMatrix, optimizationTime);
+        return createResult(solution, distanceMatrix, timeMatrix, optimizationTime, trace);
     }
     
     private int findNearestNeighbor(int currentStop, Set<Integer> unvisited, 
@@ -79,7 +96,8 @@ public class GreedyOptimizer {
     private RouteOptimizationResult createResult(List<Integer> solution, 
                                                Map<String, Map<String, Double>> distanceMatrix,
                                                Map<String, Map<String, Integer>> timeMatrix,
-                                               long optimizationTime) {
+                                               long optimizationTime,
+                                               SearchTrace trace) {
         
         double totalDistance = calculateTotalDistance(solution, distanceMatrix);
         int totalTime = calculateTotalTime(solution, timeMatrix);
@@ -97,6 +115,7 @@ public class GreedyOptimizer {
             .optimalityGap(0.0)
             .totalStops(solution.size())
             .routeEfficiency(1.0 / (1.0 + totalDistance))
+            .metrics(trace.toMetrics())
             .build();
     }
     
@@ -0,0 +1,59 @@
+package com.dpd.uk.routing.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-run search statistics collected by the optimizers and exported through
+ * {@code RouteOptimizationResult.metrics}. Recording is allocation-free per iteration.
+ */
+public class SearchTrace {
+    
+    public static final String MOVES_EVALUATED = "movesEvaluated";
+    public static final String INITIAL_COST = "initialCost";
+    public static final String BEST_COST = "bestCost";
+    public static final String IMPROVEMENT_CURVE = "improvementCurve";
+    
+    private static final int CURVE_POINTS = 5; // 0%, 25%, 50%, 75%, 100% of iterations
+    
+    private final double[] bestByIteration;
+    private double initialCost = Double.NaN;
+    private long movesEvaluated;
+    private int lastIteration;
+    
+    SearchTrace(int maxIterations) {
+        this.bestByIteration = new double[Math.max(1, maxIterations) + 1];
+    }
+    
+    void start(double cost) {
+        initialCost = cost;
+        bestByIteration[0] = cost;
+    }
+    
+    void record(int iteration, double bestCost) {
+        if (iteration < bestByIteration.length) {
+            bestByIteration[iteration] = bestCost;
+            lastIteration = Math.max(lastIteration, iteration);
+        }
+    }
+    
+    void addMoves(long moves) {
+        movesEvaluated += moves;
+    }
+    
+    Map<String, Object> toMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put(MOVES_EVALUATED, movesEvaluated);
+        metrics.put(INITIAL_COST, initialCost);
+        metrics.put(BEST_COST, bestByIteration[lastIteration]);
+        
+        List<Double> curve = new ArrayList<>(CURVE_POINTS);
+        for (int point = 0; point < CURVE_POINTS; point++) {
+            curve.add(bestByIteration[lastIteration * point / (CURVE_POINTS - 1)]);
+        }
+        metrics.put(IMPROVEMENT_CURVE, curve);
+        return metrics;
+    }
+}
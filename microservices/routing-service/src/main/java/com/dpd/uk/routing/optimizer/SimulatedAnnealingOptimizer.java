@@ -1,5 +1,6 @@
 package com.dpd.uk.routing.optimizer;
 
+import com.dpd.uk.routing.metrics.LogSampler;
 import com.dpd.uk.routing.model.RouteOptimizationRequest;
 import com.dpd.uk.routing.model.RouteOptimizationResult;
 import lombok.RequiredArgsConstructor;
@@ -16,21 +17,30 @@ public class SimulatedAnnealingOptimizer {
     private static final double DEFAULT_INITIAL_TEMPERATURE = 1000.0;
     private static final double DEFAULT_COOLING_RATE = 0.95;
     private static final int DEFAULT_MAX_ITERATIONS = 1000;
+    private static final double WARM_START_TEMPERATURE_FACTOR = 0.05;
     
     public RouteOptimizationResult optimize(RouteOptimizationRequest request, 
                                           Map<String, Map<String, Double>> distanceMatrix,
                                           Map<String, Map<String, Integer>> timeMatrix) {
         
         long startTime = System.currentTimeMillis();
-        log.info("Starting simulated annealing optimization for {} stops", request.getStops().size());
+        boolean logRun = log.isDebugEnabled() && LogSampler.sample();
+        if (logRun) {
+            log.debug("Starting simulated annealing optimization for {} stops", request.getStops().size());
+        }
         
         double initialTemperature = request.getCoolingRate() != null ? 
             (1.0 - request.getCoolingRate()) * 1000 : DEFAULT_INITIAL_TEMPERATURE;
         double coolingRate = request.getCoolingRate() != null ? request.getCoolingRate() : DEFAULT_COOLING_RATE;
         int maxIterations = request.getMaxIterations() != null ? request.getMaxIterations() : DEFAULT_MAX_ITERATIONS;
         
+        // A warm-started search begins near a good solution, so start cool to avoid walking away from it
+        if (request.getInitialSequence() != null) {
+            initialTemperature *= WARM_START_TEMPERATURE_FACTOR;
+        }
+        
         // Initialize solution
-        List<Integer> currentSolution = initializeSolution(request.getStops().size());
+        List<Integer> currentSolution = initializeSolution(request.getStops().size(), request.getInitialSequence());
         List<Integer> bestSolution = new ArrayList<>(currentSolution);
         
         double currentCost = calculateCost(currentSolution, distanceMatrix, timeMatrix, request);
@@ -38,6 +48,8 @@ public class SimulatedAnnealingOptimizer {
         
         double temperature = initialTemperature;
         int iterations = 0;
+        SearchTrace trace = new SearchTrace(maxIterations);
+        trace.start(currentCost);
         
         for (int i = 0; i < maxIterations; i++) {
             // Generate neighbor solution
@@ -59,22 +71,32 @@ public class SimulatedAnnealingOptimizer {
             // Cool down
             temperature *= coolingRate;
             iterations = i + 1;
+            trace.addMoves(1);
+            trace.record(iterations, bestCost);
             
             // Early termination if temperature is too low
             if (temperature < 0.1) {
-                log.info("Simulated annealing terminated early due to low temperature after {} iterations", iterations);
+                if (logRun) {
+                    log.debug("Simulated annealing terminated early due to low temperature after {} iterations", iterations);
+                }
                 break;
             }
         }
         
         long optimizationTime = System.currentTimeMillis() - startTime;
         
-        log.info("Simulated annealing completed in {}ms after {} iterations", optimizationTime, iterations);
+        if (logRun) {
+            log.debug("Simulated annealing completed in {}ms after {} iterations", optimizationTime, iterations);
+        }
         
-        return createResult(bestSolution, distanceMatrix, timeMatrix, optimizationTime, iterations, bestCost);
+        return createResult(bestSolution, distanceMatrix, timeMatrix, optimizationTime, iterations, bestCost, trace);
     }
     
-    private List<Integer> initializeSolution(int numStops) {
+    private List<Integer> initializeSolution(int numStops, List<Integer> seed) {
+        if (seed != null) {
+            return new ArrayList<>(seed);
+        }
+        
         List<Integer> solution = new ArrayList<>();
         for (int i = 0; i < numStops; i++) {
             solution.add(i);
@@ -156,7 +178,8 @@ public class SimulatedAnnealingOptimizer {
                                                Map<String, Map<String, Integer>> timeMatrix,
                                                long optimizationTime, 
                                                int iterations,
-                                               double cost) {
+                                               double cost,
+                                               SearchTrace trace) {
         
         double totalDistance = calculateTotalDistance(solution, distanceMatrix);
         int totalTime = calculateTotalTime(solution, timeMatrix);
@@ -174,6 +197,7 @@ public class SimulatedAnnealingOptimizer {
             .optimalityGap(0.0)
             .totalStops(solution.size())
             .routeEfficiency(1.0 / (1.0 + totalDistance))
+            .metrics(trace.toMetrics())
             .build();
     }
     
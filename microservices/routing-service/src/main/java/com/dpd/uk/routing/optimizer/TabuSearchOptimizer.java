@@ -1,5 +1,6 @@
 package com.dpd.uk.routing.optimizer;
 
+import com.dpd.uk.routing.metrics.LogSampler;
 import com.dpd.uk.routing.model.RouteOptimizationRequest;
 import com.dpd.uk.routing.model.RouteOptimizationResult;
 import lombok.RequiredArgsConstructor;
@@ -22,14 +23,17 @@ public class TabuSearchOptimizer {
                                           Map<String, Map<String, Integer>> timeMatrix) {
         
         long startTime = System.currentTimeMillis();
-        log.info("Starting tabu search optimization for {} stops", request.getStops().size());
+        boolean logRun = log.isDebugEnabled() && LogSampler.sample();
+        if (logRun) {
+            log.debug("Starting tabu search optimization for {} stops", request.getStops().size());
+        }
         
         int tabuListSize = request.getTabuListSize() != null ? request.getTabuListSize() : DEFAULT_TABU_LIST_SIZE;
         int maxIterations = request.getMaxIterations() != null ? request.getMaxIterations() : DEFAULT_MAX_ITERATIONS;
         int maxIterationsWithoutImprovement = DEFAULT_MAX_ITERATIONS_WITHOUT_IMPROVEMENT;
         
         // Initialize solution
-        List<Integer> currentSolution = initializeSolution(request.getStops().size());
+        List<Integer> currentSolution = initializeSolution(request.getStops().size(), request.getInitialSequence());
         List<Integer> bestSolution = new ArrayList<>(currentSolution);
         
         double currentCost = calculateCost(currentSolution, distanceMatrix, timeMatrix, request);
@@ -39,6 +43,8 @@ public class TabuSearchOptimizer {
         Queue<Move> tabuList = new LinkedList<>();
         int iterationsWithoutImprovement = 0;
         int iterations = 0;
+        SearchTrace trace = new SearchTrace(maxIterations);
+        trace.start(currentCost);
         
         for (int i = 0; i < maxIterations && iterationsWithoutImprovement < maxIterationsWithoutImprovement; i++) {
             // Generate all possible moves
@@ -52,6 +58,7 @@ public class TabuSearchOptimizer {
                 if (!isTabu(move, tabuList)) {
                     List<Integer> neighborSolution = applyMove(currentSolution, move);
                     double neighborCost = calculateCost(neighborSolution, distanceMatrix, timeMatrix, request);
+                    trace.addMoves(1);
                     
                     if (neighborCost < bestMoveCost) {
                         bestMove = move;
@@ -66,6 +73,7 @@ public class TabuSearchOptimizer {
                     .min(Comparator.comparing(move -> calculateCost(applyMove(currentSolution, move), distanceMatrix, timeMatrix, request)))
                     .orElse(moves.get(0));
                 bestMoveCost = calculateCost(applyMove(currentSolution, bestMove), distanceMatrix, timeMatrix, request);
+                trace.addMoves(moves.size() + 1L);
             }
             
             // Apply move
@@ -88,16 +96,23 @@ public class TabuSearchOptimizer {
             }
             
             iterations = i + 1;
+            trace.record(iterations, bestCost);
         }
         
         long optimizationTime = System.currentTimeMillis() - startTime;
         
-        log.info("Tabu search completed in {}ms after {} iterations", optimizationTime, iterations);
+        if (logRun) {
+            log.debug("Tabu search completed in {}ms after {} iterations", optimizationTime, iterations);
+        }
         
-        return createResult(bestSolution, distanceMatrix, timeMatrix, optimizationTime, iterations, bestCost);
+        return createResult(bestSolution, distanceMatrix, timeMatrix, optimizationTime, iterations, bestCost, trace);
     }
     
-    private List<Integer> initializeSolution(int numStops) {
+    private List<Integer> initializeSolution(int numStops, List<Integer> seed) {
+        if (seed != null) {
+            return new ArrayList<>(seed);
+        }
+        
         List<Integer> solution = new ArrayList<>();
         for (int i = 0; i < numStops; i++) {
             solution.add(i);
@@ -201,7 +216,8 @@ public class TabuSearchOptimizer {
                                                Map<String, Map<String, Integer>> timeMatrix,
                                                long optimizationTime, 
                                                int iterations,
-                                               double cost) {
+                                               double cost,
+                                               SearchTrace trace) {
         
         double totalDistance = calculateTotalDistance(solution, distanceMatrix);
         int totalTime = calculateTotalTime(solution, timeMatrix);
@@ -219,6 +235,7 @@ public class TabuSearchOptimizer {
             .optimalityGap(0.0)
             .totalStops(solution.size())
             .routeEfficiency(1.0 / (1.0 + totalDistance))
+            .metrics(trace.toMetrics())
             .build();
     }
     
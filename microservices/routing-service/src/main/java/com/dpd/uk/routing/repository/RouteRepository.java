@@ -10,7 +10,9 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface RouteRepository extends MongoRepository<Route, String> {
+public interface RouteRepository extends MongoRepository<Route, String>, RouteRepositoryCustom {
+    
+    Optional<Route> findByRouteId(String routeId);
     
     List<Route> findByDepotIdAndStatus(String depotId, Route.RouteStatus status);
     
@@ -30,6 +32,8 @@ public interface RouteRepository extends MongoRepository<Route, String> {
     @Query("{ 'depotId': ?0, 'status': ?1, 'totalDistanceKm': { $lte: ?2 } }")
     List<Route> findByDepotIdAndStatusAndMaxDistance(String depotId, Route.RouteStatus status, Double maxDistance);
     
+    List<Route> findTop5ByDepotIdAndDriverIdAndPlannedStartTimeAfterOrderByPlannedStartTimeDesc(String depotId, String driverId, LocalDateTime after);
+    
     Optional<Route> findByRouteIdAndStatus(String routeId, Route.RouteStatus status);
     
     long countByDepotIdAndStatus(String depotId, Route.RouteStatus status);
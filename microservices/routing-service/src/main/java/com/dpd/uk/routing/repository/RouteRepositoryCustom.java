@@ -0,0 +1,19 @@
+package com.dpd.uk.routing.repository;
+
+import com.dpd.uk.common.model.Route;
+import com.dpd.uk.routing.model.RouteSummary;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface RouteRepositoryCustom {
+    
+    Optional<Route> updateStatus(String routeId, Route.RouteStatus status);
+    
+    Optional<Route> updateStops(String routeId, List<Route.RouteStop> stops, Double totalDistanceKm,
+                                Integer estimatedDurationMinutes, Route.RouteStatus status);
+    
+    void insertAll(List<Route> routes);
+    
+    List<RouteSummary> findSummariesByDepotIdAndStatus(String depotId, Route.RouteStatus status);
+}
@@ -0,0 +1,86 @@
+package com.dpd.uk.routing.repository;
+
+import com.dpd.uk.common.model.Route;
+import com.dpd.uk.routing.model.RouteSummary;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class RouteRepositoryImpl implements RouteRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public Optional<Route> updateStatus(String routeId, Route.RouteStatus status) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+            .set("status", status)
+            .set("lastUpdated", now)
+            .inc("version", 1);
+        
+        if (status == Route.RouteStatus.IN_PROGRESS) {
+            update.set("actualStartTime", now);
+        } else if (status == Route.RouteStatus.COMPLETED) {
+            update.set("actualEndTime", now);
+        }
+        
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+            byRouteId(routeId), update, FindAndModifyOptions.options().returnNew(true), Route.class));
+    }
+    
+    @Override
+    public Optional<Route> updateStops(String routeId, List<Route.RouteStop> stops, Double totalDistanceKm,
+                                       Integer estimatedDurationMinutes, Route.RouteStatus status) {
+        Update update = new Update()
+            .set("stops", stops)
+            .set("totalDistanceKm", totalDistanceKm)
+            .set("estimatedDurationMinutes", estimatedDurationMinutes)
+            .set("status", status)
+            .set("lastUpdated", LocalDateTime.now())
+            .inc("version", 1);
+        
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+            byRouteId(routeId), update, FindAndModifyOptions.options().returnNew(true), Route.class));
+    }
+    
+    @Override
+    public void insertAll(List<Route> routes) {
+        if (routes.isEmpty()) {
+            return;
+        }
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Route.class)
+            .insert(routes)
+            .execute();
+    }
+    
+    @Override
+    public List<RouteSummary> findSummariesByDepotIdAndStatus(String depotId, Route.RouteStatus status) {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("depotId").is(depotId).and("status").is(status)),
+            Aggregation.project("routeId", "depotId", "driverId", "vehicleId", "status",
+                    "totalDistanceKm", "estimatedDurationMinutes", "plannedStartTime", "plannedEndTime",
+                    "actualStartTime", "actualEndTime", "optimizationAlgorithm")
+                .and(ArrayOperators.Size.lengthOfArray(
+                    ConditionalOperators.ifNull("stops").then(Collections.emptyList()))).as("stopCount")
+        );
+        
+        return mongoTemplate.aggregate(aggregation, Route.class, RouteSummary.class).getMappedResults();
+    }
+    
+    private Query byRouteId(String routeId) {
+        return Query.query(Criteria.where("routeId").is(routeId));
+    }
+}
@@ -1,14 +1,13 @@
 package com.dpd.uk.routing.service;
 
 import com.dpd.uk.common.model.Address;
+import com.dpd.uk.common.outbound.OutboundClientRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 
-import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -18,20 +17,14 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class MappingService {
     
-    private final WebClient.Builder webClientBuilder;
+    private final OutboundClientRegistry outboundClientRegistry;
     
     @Value("${external.mapping.api-key}")
     private String mappingApiKey;
     
-    @Value("${external.mapping.base-url}")
-    private String mappingBaseUrl;
-    
-    @Value("${external.mapping.timeout}")
-    private int timeout;
-    
     @Cacheable(value = "distance-matrix", key = "#addresses.hashCode()")
     public Map<String, Map<String, Double>> calculateDistanceMatrix(List<Address> addresses) {
-        log.info("Calculating distance matrix for {} addresses", addresses.size());
+        log.debug("Calculating distance matrix for {} addresses", addresses.size());
         
         try {
             // For now, using Haversine distance as fallback
@@ -46,7 +39,7 @@ public class MappingService {
     
     @Cacheable(value = "time-matrix", key = "#addresses.hashCode()")
     public Map<String, Map<String, Integer>> calculateTimeMatrix(List<Address> addresses) {
-        log.info("Calculating time matrix for {} addresses", addresses.size());
+        log.debug("Calculating time matrix for {} addresses", addresses.size());
         
         try {
             // For now, using estimated travel time based on distance
@@ -59,36 +52,21 @@ public class MappingService {
         }
     }
     
+    @SuppressWarnings("unchecked")
     public Map<String, Object> getRouteDetails(Address origin, Address destination) {
         log.info("Getting route details from {} to {}", origin.getPostcode(), destination.getPostcode());
         
-        try {
-            WebClient webClient = webClientBuilder
-                .baseUrl(mappingBaseUrl)
-                .build();
-            
-            // In a real implementation, this would call Azure Maps routing API
-            Map<String, Object> routeData = webClient
-                .get()
-                .uri(uriBuilder -> uriBuilder
-                    .path("/route/directions/json")
-                    .queryParam("api-version", "1.0")
-                    .queryParam("query", origin.getLatitude() + "," + origin.getLongitude() + ":" + 
-                               destination.getLatitude() + "," + destination.getLongitude())
-                    .queryParam("subscription-key", mappingApiKey)
-                    .build())
-                .retrieve()
-                .bodyToMono(Map.class)
-                .timeout(Duration.ofMillis(timeout))
-                .onErrorReturn(createFallbackRouteDetails(origin, destination))
-                .block();
-            
-            return processRouteDetails(routeData);
-            
-        } catch (Exception e) {
-            log.warn("Failed to get route details, using fallback", e);
-            return createFallbackRouteDetails(origin, destination);
-        }
+        // In a real implementation, this would call Azure Maps routing API
+        Map<String, Object> routeData = outboundClientRegistry.client("mapping").get(uriBuilder -> uriBuilder
+                .path("/route/directions/json")
+                .queryParam("api-version", "1.0")
+                .queryParam("query", origin.getLatitude() + "," + origin.getLongitude() + ":" + 
+                           destination.getLatitude() + "," + destination.getLongitude())
+                .queryParam("subscription-key", mappingApiKey)
+                .build(),
+            Map.class, () -> null);
+        
+        return routeData != null ? processRouteDetails(routeData) : createFallbackRouteDetails(origin, destination);
     }
     
     private Map<String, Map<String, Double>> calculateHaversineDistanceMatrix(List<Address> addresses) {
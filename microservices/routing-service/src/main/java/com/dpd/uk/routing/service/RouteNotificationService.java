@@ -1,11 +1,16 @@
 package com.dpd.uk.routing.service;
 
 import com.dpd.uk.common.model.Route;
+import com.dpd.uk.routing.model.RouteDeltaEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
 
+import java.util.*;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -17,8 +22,12 @@ public class RouteNotificationService {
         try {
             log.info("Sending route optimization notification for route: {}", route.getRouteId());
             
+            RouteDeltaEvent event = baseEvent(route, RouteDeltaEvent.DeltaType.CREATED)
+                .stops(route.getStops() != null ? route.getStops().stream().map(this::toDelta).toList() : List.of())
+                .build();
+            
             // Send to Kafka topic for real-time updates
-            streamBridge.send("route-optimized-out", route);
+            send("route-optimized-out", route.getRouteId(), event);
             
             log.debug("Route optimization notification sent successfully for route: {}", route.getRouteId());
             
@@ -27,17 +36,121 @@ public class RouteNotificationService {
         }
     }
     
-    public void notifyRouteUpdated(Route route) {
+    public void notifyRouteStatusChanged(Route route) {
         try {
-            log.info("Sending route update notification for route: {}", route.getRouteId());
+            log.info("Sending route status notification for route: {}, status: {}", route.getRouteId(), route.getStatus());
+            
+            RouteDeltaEvent event = baseEvent(route, RouteDeltaEvent.DeltaType.STATUS_CHANGED)
+                .stops(List.of())
+                .build();
+            
+            send("route-update-out", route.getRouteId(), event);
+            
+        } catch (Exception e) {
+            log.error("Failed to send route status notification for route: {}", route.getRouteId(), e);
+        }
+    }
+    
+    public void notifyRouteUpdated(Route previous, Route current) {
+        try {
+            log.info("Sending route update notification for route: {}", current.getRouteId());
+            
+            RouteDeltaEvent event = baseEvent(current, RouteDeltaEvent.DeltaType.STOPS_CHANGED)
+                .stops(diffStops(previous.getStops(), current.getStops()))
+                .build();
             
             // Send to Kafka topic for real-time updates
-            streamBridge.send("route-update-out", route);
+            send("route-update-out", current.getRouteId(), event);
             
-            log.debug("Route update notification sent successfully for route: {}", route.getRouteId());
+            log.debug("Route update notification sent successfully for route: {} ({} stop changes)",
+                current.getRouteId(), event.getStops().size());
             
         } catch (Exception e) {
-            log.error("Failed to send route update notification for route: {}", route.getRouteId(), e);
+            log.error("Failed to send route update notification for route: {}", current.getRouteId(), e);
+        }
+    }
+    
+    /**
+     * Publishes the full route for consumers that missed a version or are bootstrapping.
+     */
+    public void publishSnapshot(Route route) {
+        try {
+            log.info("Sending route snapshot for route: {}, version: {}", route.getRouteId(), route.getVersion());
+            
+            send("route-snapshot-out", route.getRouteId(), route);
+            
+        } catch (Exception e) {
+            log.error("Failed to send route snapshot for route: {}", route.getRouteId(), e);
+        }
+    }
+    
+    private void send(String binding, String routeId, Object payload) {
+        // Key by route so all versions of a route land on one partition in order
+        streamBridge.send(binding, MessageBuilder.withPayload(payload)
+            .setHeader(KafkaHeaders.KEY, routeId)
+            .build());
+    }
+    
+    private RouteDeltaEvent.RouteDeltaEventBuilder baseEvent(Route route, RouteDeltaEvent.DeltaType type) {
+        return RouteDeltaEvent.builder()
+            .routeId(route.getRouteId())
+            .depotId(route.getDepotId())
+            .driverId(route.getDriverId())
+            .version(route.getVersion())
+            .type(type)
+            .status(route.getStatus())
+            .totalDistanceKm(route.getTotalDistanceKm())
+            .estimatedDurationMinutes(route.getEstimatedDurationMinutes())
+            .timestamp(System.currentTimeMillis());
+    }
+    
+    private List<RouteDeltaEvent.StopDelta> diffStops(List<Route.RouteStop> previousStops, List<Route.RouteStop> currentStops) {
+        Map<String, Route.RouteStop> previousByKey = new HashMap<>();
+        if (previousStops != null) {
+            previousStops.forEach(stop -> previousByKey.put(stopKey(stop), stop));
+        }
+        
+        List<RouteDeltaEvent.StopDelta> deltas = new ArrayList<>();
+        if (currentStops != null) {
+            for (Route.RouteStop stop : currentStops) {
+                Route.RouteStop previous = previousByKey.remove(stopKey(stop));
+                if (previous == null
+                        || !Objects.equals(previous.getSequence(), stop.getSequence())
+                        || previous.getStatus() != stop.getStatus()
+                        || !Objects.equals(previous.getEstimatedArrivalMinutes(), stop.getEstimatedArrivalMinutes())) {
+                    deltas.add(toDelta(stop));
+                }
+            }
+        }
+        
+        // Whatever is left was dropped from the route
+        for (Route.RouteStop removed : previousByKey.values()) {
+            RouteDeltaEvent.StopDelta delta = toDelta(removed);
+            delta.setRemoved(true);
+            deltas.add(delta);
+        }
+        
+        return deltas;
+    }
+    
+    private RouteDeltaEvent.StopDelta toDelta(Route.RouteStop stop) {
+        return RouteDeltaEvent.StopDelta.builder()
+            .stopId(stop.getStopId())
+            .parcelId(stop.getParcelId())
+            .postcode(stop.getAddress() != null ? stop.getAddress().getPostcode() : null)
+            .sequence(stop.getSequence())
+            .status(stop.getStatus())
+            .estimatedArrivalMinutes(stop.getEstimatedArrivalMinutes())
+            .build();
+    }
+    
+    private String stopKey(Route.RouteStop stop) {
+        if (stop.getParcelId() != null) {
+            return stop.getParcelId();
+        }
+        if (stop.getAddress() != null) {
+            return stop.getAddress().getPostcode() + "|" + stop.getAddress().getLine1();
         }
+        return stop.getStopId();
     }
 }
@@ -3,16 +3,24 @@ package com.dpd.uk.routing.service;
 import com.dpd.uk.common.model.Address;
 import com.dpd.uk.common.model.Parcel;
 import com.dpd.uk.common.model.Route;
+import com.dpd.uk.routing.cache.OptimizedRouteCache;
+import com.dpd.uk.routing.cache.RouteRequestDigest;
+import com.dpd.uk.routing.metrics.LogSampler;
+import com.dpd.uk.routing.metrics.OptimizerMetrics;
 import com.dpd.uk.routing.model.RouteOptimizationRequest;
 import com.dpd.uk.routing.model.RouteOptimizationResult;
+import com.dpd.uk.routing.model.RouteSummary;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
+import org.bson.types.ObjectId;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -20,6 +28,9 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class RouteOptimizationService {
     
+    private static final String DEFAULT_ALGORITHM = "GENETIC_ALGORITHM";
+    private static final Set<String> ALGORITHMS = Set.of(DEFAULT_ALGORITHM, "SIMULATED_ANNEALING", "TABU_SEARCH", "GREEDY");
+    
     private final MappingService mappingService;
     private final RouteRepository routeRepository;
     private final RouteNotificationService routeNotificationService;
@@ -27,44 +38,55 @@ public class RouteOptimizationService {
     private final SimulatedAnnealingOptimizer simulatedAnnealingOptimizer;
     private final TabuSearchOptimizer tabuSearchOptimizer;
     private final GreedyOptimizer greedyOptimizer;
+    private final WarmStartService warmStartService;
+    private final OptimizedRouteCache optimizedRouteCache;
+    private final OptimizerMetrics optimizerMetrics;
+    private final ExecutorService routingIoExecutor;
+    private final ExecutorService optimizerExecutor;
+    private final Semaphore optimizerBatchPermits;
     
-    @Cacheable(value = "optimized-routes", key = "#request.depotId + '_' + #request.driverId + '_' + #request.algorithm")
     public RouteOptimizationResult optimizeRoute(RouteOptimizationRequest request) {
-        log.info("Starting route optimization for depot: {}, driver: {}, algorithm: {}", 
-            request.getDepotId(), request.getDriverId(), request.getAlgorithm());
+        boolean logRun = log.isDebugEnabled() && LogSampler.sample();
+        if (logRun) {
+            log.debug("Starting route optimization for depot: {}, driver: {}, algorithm: {}", 
+                request.getDepotId(), request.getDriverId(), request.getAlgorithm());
+        }
         
         try {
             // Validate request
             validateOptimizationRequest(request);
             
-            // Get distance matrix for all stops
-            CompletableFuture<Map<String, Map<String, Double>>> distanceMatrixFuture = 
-                CompletableFuture.supplyAsync(() -> mappingService.calculateDistanceMatrix(request.getStops()));
-            
-            // Get time matrix for all stops
-            CompletableFuture<Map<String, Map<String, Integer>>> timeMatrixFuture = 
-                CompletableFuture.supplyAsync(() -> mappingService.calculateTimeMatrix(request.getStops()));
-            
-            // Wait for both matrices
-            CompletableFuture.allOf(distanceMatrixFuture, timeMatrixFuture).join();
+            // Identical requests (e.g. dispatcher retries) share one result
+            String key = RouteRequestDigest.of(request);
+            OptimizedRouteCache.Lookup lookup = lookup(key, request);
+            RouteOptimizationResult result = lookup.result();
             
-            Map<String, Map<String, Double>> distanceMatrix = distanceMatrixFuture.get();
-            Map<String, Map<String, Integer>> timeMatrix = timeMatrixFuture.get();
-            
-            // Run optimization algorithm
-            RouteOptimizationResult result = runOptimizationAlgorithm(request, distanceMatrix, timeMatrix);
+            if (!lookup.computed()) {
+                return result;
+            }
             
-            // Create optimized route
-            Route optimizedRoute = createOptimizedRoute(request, result);
+            Route optimizedRoute;
+            try {
+                // Create optimized route
+                optimizedRoute = createOptimizedRoute(request, result);
+                
+                // Save route
+                routeRepository.save(optimizedRoute);
+            } catch (RuntimeException e) {
+                optimizedRouteCache.fail(key, lookup, e);
+                throw e;
+            }
             
-            // Save route
-            routeRepository.save(optimizedRoute);
+            // Only a persisted result may be shared with identical requests
+            optimizedRouteCache.complete(key, lookup);
             
             // Notify about optimization completion
             routeNotificationService.notifyRouteOptimized(optimizedRoute);
             
-            log.info("Route optimization completed for depot: {}, route: {}", 
-                request.getDepotId(), optimizedRoute.getRouteId());
+            if (logRun) {
+                log.debug("Route optimization completed for depot: {}, route: {}", 
+                    request.getDepotId(), optimizedRoute.getRouteId());
+            }
             
             return result;
             
@@ -74,12 +96,115 @@ public class RouteOptimizationService {
         }
     }
     
+    /**
+     * Optimizes a batch of plans and persists the new routes with a single bulk insert.
+     */
+    public List<RouteOptimizationResult> optimizeRoutes(List<RouteOptimizationRequest> requests) {
+        log.info("Starting batch route optimization for {} plans", requests.size());
+        
+        // Plans solve concurrently; each blocks on its matrices, then queues for an optimizer thread.
+        // A permit per plan keeps the batch within the pool's threads plus queue, so the pool's
+        // rejection only ever applies to independent single-route requests.
+        String[] keys = new String[requests.size()];
+        Map<String, CompletableFuture<OptimizedRouteCache.Lookup>> byKey = new HashMap<>();
+        List<CompletableFuture<OptimizedRouteCache.Lookup>> lookups = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            RouteOptimizationRequest request = requests.get(i);
+            try {
+                validateOptimizationRequest(request);
+                keys[i] = RouteRequestDigest.of(request);
+            } catch (RuntimeException e) {
+                lookups.add(CompletableFuture.failedFuture(e));
+                continue;
+            }
+            
+            // A plan repeated within the batch shares the first one's lookup and route
+            String key = keys[i];
+            CompletableFuture<OptimizedRouteCache.Lookup> lookup = byKey.get(key);
+            if (lookup == null) {
+                optimizerBatchPermits.acquireUninterruptibly();
+                lookup = CompletableFuture.supplyAsync(() -> lookup(key, request), routingIoExecutor)
+                    .whenComplete((result, error) -> optimizerBatchPermits.release());
+                byKey.put(key, lookup);
+            }
+            lookups.add(lookup);
+        }
+        
+        // Plans this batch solved, by key; they stay in flight until the insert below settles them
+        Map<String, OptimizedRouteCache.Lookup> claimed = new LinkedHashMap<>();
+        OptimizedRouteCache.Lookup[] resolved = new OptimizedRouteCache.Lookup[requests.size()];
+        List<Route> newRoutes = new ArrayList<>();
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                RouteOptimizationRequest request = requests.get(i);
+                try {
+                    OptimizedRouteCache.Lookup lookup = lookups.get(i).join();
+                    if (lookup.computed() && !claimed.containsKey(keys[i])) {
+                        Route route;
+                        try {
+                            route = createOptimizedRoute(request, lookup.result());
+                        } catch (RuntimeException e) {
+                            optimizedRouteCache.fail(keys[i], lookup, e);
+                            throw e;
+                        }
+                        newRoutes.add(route);
+                        claimed.put(keys[i], lookup);
+                    }
+                    resolved[i] = lookup;
+                    
+                } catch (Exception e) {
+                    log.error("Error optimizing route for depot: {}, driver: {}", request.getDepotId(), request.getDriverId(), e);
+                }
+            }
+            
+            try {
+                routeRepository.insertAll(newRoutes);
+            } catch (RuntimeException e) {
+                // Nothing was cached or announced, so resubmitting the batch recomputes and inserts these plans
+                log.error("Failed to insert {} new routes from batch of {} plans", newRoutes.size(), requests.size(), e);
+                claimed.forEach((key, lookup) -> {
+                    optimizedRouteCache.fail(key, lookup, e);
+                    lookup.result().setStatus("FAILED");
+                    lookup.result().setErrors(List.of("Route could not be saved: " + e.getMessage()));
+                });
+                newRoutes.clear();
+            }
+            claimed.forEach(optimizedRouteCache::complete);
+            
+        } finally {
+            // Anything still in flight here was never persisted; release the requests waiting on it
+            RuntimeException aborted = new IllegalStateException("Batch optimization did not persist the route");
+            claimed.forEach((key, lookup) -> optimizedRouteCache.fail(key, lookup, aborted));
+        }
+        newRoutes.forEach(routeNotificationService::notifyRouteOptimized);
+        
+        // Plans that joined another caller's computation wait for it only now, after this batch's own
+        // routes are settled, so two batches sharing plans never wait on each other
+        List<RouteOptimizationResult> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            RouteOptimizationRequest request = requests.get(i);
+            try {
+                if (resolved[i] == null) {
+                    results.add(createFallbackResult(request));
+                } else {
+                    results.add(resolved[i].result());
+                }
+            } catch (Exception e) {
+                log.error("Error optimizing route for depot: {}, driver: {}", request.getDepotId(), request.getDriverId(), e);
+                results.add(createFallbackResult(request));
+            }
+        }
+        
+        log.info("Batch route optimization completed: {} plans, {} new routes", requests.size(), newRoutes.size());
+        return results;
+    }
+    
     public Route getRoute(String routeId) {
-        return routeRepository.findById(routeId).orElse(null);
+        return routeRepository.findByRouteId(routeId).orElse(null);
     }
     
-    public List<Route> getRoutesByDepot(String depotId) {
-        return routeRepository.findByDepotIdAndStatus(depotId, Route.RouteStatus.PLANNED);
+    public List<RouteSummary> getRoutesByDepot(String depotId) {
+        return routeRepository.findSummariesByDepotIdAndStatus(depotId, Route.RouteStatus.PLANNED);
     }
     
     public List<Route> getRoutesByDriver(String driverId) {
@@ -87,21 +212,25 @@ public class RouteOptimizationService {
     }
     
     public Route updateRouteStatus(String routeId, Route.RouteStatus status) {
-        return routeRepository.findById(routeId)
+        return routeRepository.updateStatus(routeId, status)
             .map(route -> {
-                route.setStatus(status);
-                if (status == Route.RouteStatus.IN_PROGRESS) {
-                    route.setActualStartTime(LocalDateTime.now());
-                } else if (status == Route.RouteStatus.COMPLETED) {
-                    route.setActualEndTime(LocalDateTime.now());
-                }
-                return routeRepository.save(route);
+                routeNotificationService.notifyRouteStatusChanged(route);
+                return route;
             })
             .orElse(null);
     }
     
+    public boolean publishRouteSnapshot(String routeId) {
+        return routeRepository.findByRouteId(routeId)
+            .map(route -> {
+                routeNotificationService.publishSnapshot(route);
+                return true;
+            })
+            .orElse(false);
+    }
+    
     public Route reroute(String routeId, List<Address> newStops) {
-        Route existingRoute = routeRepository.findById(routeId).orElse(null);
+        Route existingRoute = routeRepository.findByRouteId(routeId).orElse(null);
         if (existingRoute == null) {
             throw new IllegalArgumentException("Route not found: " + routeId);
         }
@@ -114,20 +243,38 @@ public class RouteOptimizationService {
             .stops(newStops)
             .algorithm("GENETIC_ALGORITHM") // Use genetic algorithm for rerouting
             .maxDurationHours(8)
-            .maxDistanceKm(200)
+            .maxDistanceKm(200.0)
             .build();
         
-        // Optimize new route
-        RouteOptimizationResult result = optimizeRoute(rerouteRequest);
+        // Optimize new stops without persisting a separate route
+        validateOptimizationRequest(rerouteRequest);
+        String key = RouteRequestDigest.of(rerouteRequest);
+        OptimizedRouteCache.Lookup lookup = lookup(key, rerouteRequest);
+        RouteOptimizationResult result = lookup.result();
         
-        // Update existing route with new stops
-        existingRoute.setStops(convertToRouteStops(newStops, result.getOptimizedSequence()));
-        existingRoute.setTotalDistanceKm(result.getTotalDistance());
-        existingRoute.setEstimatedDurationMinutes(result.getTotalTime());
-        existingRoute.setLastUpdated(LocalDateTime.now());
-        existingRoute.setStatus(Route.RouteStatus.OPTIMIZING);
+        // Update stops and totals in place
+        Route updatedRoute;
+        try {
+            updatedRoute = routeRepository.updateStops(
+                    routeId,
+                    convertToRouteStops(newStops, result.getOptimizedSequence()),
+                    result.getTotalDistance(),
+                    result.getTotalTime(),
+                    Route.RouteStatus.OPTIMIZING)
+                .orElse(null);
+        } catch (RuntimeException e) {
+            optimizedRouteCache.fail(key, lookup, e);
+            throw e;
+        }
+        
+        if (updatedRoute == null) {
+            optimizedRouteCache.fail(key, lookup, new IllegalArgumentException("Route not found: " + routeId));
+            return null;
+        }
+        optimizedRouteCache.complete(key, lookup);
+        routeNotificationService.notifyRouteUpdated(existingRoute, updatedRoute);
         
-        return routeRepository.save(existingRoute);
+        return updatedRoute;
     }
     
     private void validateOptimizationRequest(RouteOptimizationRequest request) {
@@ -140,25 +287,84 @@ public class RouteOptimizationService {
         if (request.getDriverId() == null || request.getDriverId().trim().isEmpty()) {
             throw new IllegalArgumentException("Driver ID is required");
         }
+        if (request.getInitialSequence() != null
+                && !warmStartService.isValidSequence(request.getInitialSequence(), request.getStops().size())) {
+            log.warn("Ignoring invalid initial sequence for depot: {}, driver: {}", request.getDepotId(), request.getDriverId());
+            request.setInitialSequence(null);
+        }
+    }
+    
+    private OptimizedRouteCache.Lookup lookup(String key, RouteOptimizationRequest request) {
+        OptimizedRouteCache.Lookup lookup = optimizedRouteCache.getOrCompute(key, () -> solve(request));
+        optimizerMetrics.recordCacheLookup(!lookup.computed());
+        return lookup;
+    }
+    
+    private RouteOptimizationResult solve(RouteOptimizationRequest request) {
+        int stops = request.getStops().size();
+        long matrixStart = System.nanoTime();
+        
+        // Get distance matrix for all stops
+        CompletableFuture<Map<String, Map<String, Double>>> distanceMatrixFuture = 
+            CompletableFuture.supplyAsync(() -> mappingService.calculateDistanceMatrix(request.getStops()), routingIoExecutor);
+        
+        // Get time matrix for all stops
+        CompletableFuture<Map<String, Map<String, Integer>>> timeMatrixFuture = 
+            CompletableFuture.supplyAsync(() -> mappingService.calculateTimeMatrix(request.getStops()), routingIoExecutor);
+        
+        Map<String, Map<String, Double>> distanceMatrix = distanceMatrixFuture.join();
+        Map<String, Map<String, Integer>> timeMatrix = timeMatrixFuture.join();
+        long matrixNanos = System.nanoTime() - matrixStart;
+        optimizerMetrics.recordMatrixBuild(stops, matrixNanos);
+        
+        // Seed the search from the driver's recent route when the stops recur
+        if (request.getInitialSequence() == null) {
+            warmStartService.buildSeed(request, distanceMatrix).ifPresent(request::setInitialSequence);
+        }
+        
+        // Run optimization algorithm on the bounded CPU pool; a full queue rejects and the caller falls back
+        String algorithm = algorithmFor(request);
+        long solveStart = System.nanoTime();
+        RouteOptimizationResult result = CompletableFuture
+            .supplyAsync(() -> runOptimizationAlgorithm(algorithm, request, distanceMatrix, timeMatrix), optimizerExecutor)
+            .join();
+        long solveNanos = System.nanoTime() - solveStart;
+        result.setWarmStarted(request.getInitialSequence() != null);
+        
+        Map<String, Object> metrics = result.getMetrics() != null ? new HashMap<>(result.getMetrics()) : new HashMap<>();
+        metrics.put("matrixBuildMillis", TimeUnit.NANOSECONDS.toMillis(matrixNanos));
+        result.setMetrics(metrics);
+        optimizerMetrics.recordSolve(algorithm, stops, solveNanos, result);
+        return result;
+    }
+    
+    /**
+     * The algorithm that will run for the request; unknown names fall back to the genetic algorithm.
+     */
+    private String algorithmFor(RouteOptimizationRequest request) {
+        String algorithm = request.getAlgorithm() != null ? request.getAlgorithm().toUpperCase() : null;
+        if (algorithm != null && ALGORITHMS.contains(algorithm)) {
+            return algorithm;
+        }
+        log.warn("Unknown algorithm: {}, falling back to genetic algorithm", request.getAlgorithm());
+        return DEFAULT_ALGORITHM;
     }
     
-    private RouteOptimizationResult runOptimizationAlgorithm(RouteOptimizationRequest request, 
+    private RouteOptimizationResult runOptimizationAlgorithm(String algorithm,
+                                                           RouteOptimizationRequest request, 
                                                            Map<String, Map<String, Double>> distanceMatrix,
                                                            Map<String, Map<String, Integer>> timeMatrix) {
-        return switch (request.getAlgorithm().toUpperCase()) {
-            case "GENETIC_ALGORITHM" -> geneticAlgorithmOptimizer.optimize(request, distanceMatrix, timeMatrix);
+        return switch (algorithm) {
             case "SIMULATED_ANNEALING" -> simulatedAnnealingOptimizer.optimize(request, distanceMatrix, timeMatrix);
             case "TABU_SEARCH" -> tabuSearchOptimizer.optimize(request, distanceMatrix, timeMatrix);
             case "GREEDY" -> greedyOptimizer.optimize(request, distanceMatrix, timeMatrix);
-            default -> {
-                log.warn("Unknown algorithm: {}, falling back to genetic algorithm", request.getAlgorithm());
-                yield geneticAlgorithmOptimizer.optimize(request, distanceMatrix, timeMatrix);
-            }
+            default -> geneticAlgorithmOptimizer.optimize(request, distanceMatrix, timeMatrix);
         };
     }
     
     private Route createOptimizedRoute(RouteOptimizationRequest request, RouteOptimizationResult result) {
-        String routeId = "ROUTE_" + System.currentTimeMillis() + "_" + request.getDepotId();
+        // Unique even for plans of one depot built in the same millisecond by a batch
+        String routeId = "ROUTE_" + new ObjectId().toHexString() + "_" + request.getDepotId();
         
         return Route.builder()
             .routeId(routeId)
@@ -172,10 +378,12 @@ public class RouteOptimizationService {
             .plannedStartTime(LocalDateTime.now().plusHours(1)) // Start in 1 hour
             .plannedEndTime(LocalDateTime.now().plusHours(1).plusMinutes(result.getTotalTime()))
             .optimizationAlgorithm(request.getAlgorithm())
+            .version(1L)
             .metadata(Map.of(
                 "optimizationTime", result.getOptimizationTime(),
                 "iterations", result.getIterations(),
-                "fitness", result.getFitness()
+                "fitness", result.getFitness(),
+                "warmStarted", Boolean.TRUE.equals(result.getWarmStarted())
             ))
             .build();
     }
@@ -0,0 +1,170 @@
+package com.dpd.uk.routing.service;
+
+import com.dpd.uk.common.model.Address;
+import com.dpd.uk.common.model.Route;
+import com.dpd.uk.routing.model.RouteOptimizationRequest;
+import com.dpd.uk.routing.repository.RouteRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WarmStartService {
+    
+    private final RouteRepository routeRepository;
+    
+    @Value("${routing.optimization.warm-start.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${routing.optimization.warm-start.lookback-days:7}")
+    private int lookbackDays;
+    
+    @Value("${routing.optimization.warm-start.min-overlap:0.5}")
+    private double minOverlap;
+    
+    /**
+     * Builds an initial stop sequence from the driver's most similar recent route.
+     * Stops that recur keep their previous order, stops no longer requested are dropped
+     * and new stops are placed by cheapest insertion against the distance matrix.
+     */
+    public Optional<List<Integer>> buildSeed(RouteOptimizationRequest request,
+                                             Map<String, Map<String, Double>> distanceMatrix) {
+        if (!enabled || request.getStops().size() < 3) {
+            return Optional.empty();
+        }
+        
+        try {
+            List<Route> recentRoutes = routeRepository.findTop5ByDepotIdAndDriverIdAndPlannedStartTimeAfterOrderByPlannedStartTimeDesc(
+                request.getDepotId(), request.getDriverId(), LocalDateTime.now().minusDays(lookbackDays));
+            
+            if (recentRoutes.isEmpty()) {
+                return Optional.empty();
+            }
+            
+            Map<String, Integer> stopIndex = indexStops(request.getStops());
+            
+            List<Integer> bestMatch = List.of();
+            for (Route route : recentRoutes) {
+                List<Integer> matched = matchPreviousOrder(route, stopIndex);
+                if (matched.size() > bestMatch.size()) {
+                    bestMatch = matched;
+                }
+            }
+            
+            double overlap = (double) bestMatch.size() / request.getStops().size();
+            if (overlap < minOverlap) {
+                log.debug("No warm start for driver: {}, best overlap {}", request.getDriverId(), overlap);
+                return Optional.empty();
+            }
+            
+            List<Integer> seed = new ArrayList<>(bestMatch);
+            
+            // Depot (index 0) always leads the route
+            seed.remove(Integer.valueOf(0));
+            seed.add(0, 0);
+            
+            insertMissingStops(seed, request.getStops().size(), distanceMatrix);
+            
+            log.debug("Warm start for driver: {} with {}% stop overlap", request.getDriverId(), Math.round(overlap * 100));
+            return Optional.of(seed);
+            
+        } catch (Exception e) {
+            log.warn("Failed to build warm start for depot: {}, driver: {}", request.getDepotId(), request.getDriverId(), e);
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Returns true when the sequence visits every stop index exactly once.
+     */
+    public boolean isValidSequence(List<Integer> sequence, int numStops) {
+        if (sequence == null || sequence.size() != numStops) {
+            return false;
+        }
+        boolean[] seen = new boolean[numStops];
+        for (Integer index : sequence) {
+            if (index == null || index < 0 || index >= numStops || seen[index]) {
+                return false;
+            }
+            seen[index] = true;
+        }
+        return true;
+    }
+    
+    private Map<String, Integer> indexStops(List<Address> stops) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < stops.size(); i++) {
+            index.putIfAbsent(stopKey(stops.get(i)), i);
+        }
+        return index;
+    }
+    
+    private List<Integer> matchPreviousOrder(Route route, Map<String, Integer> stopIndex) {
+        if (route.getStops() == null) {
+            return List.of();
+        }
+        
+        List<Route.RouteStop> previousStops = new ArrayList<>(route.getStops());
+        previousStops.sort(Comparator.comparing(stop -> stop.getSequence() != null ? stop.getSequence() : Integer.MAX_VALUE));
+        
+        List<Integer> matched = new ArrayList<>();
+        Set<Integer> used = new HashSet<>();
+        for (Route.RouteStop stop : previousStops) {
+            if (stop.getAddress() == null) {
+                continue;
+            }
+            Integer index = stopIndex.get(stopKey(stop.getAddress()));
+            if (index != null && used.add(index)) {
+                matched.add(index);
+            }
+        }
+        return matched;
+    }
+    
+    private void insertMissingStops(List<Integer> seed, int numStops, Map<String, Map<String, Double>> distanceMatrix) {
+        boolean[] present = new boolean[numStops];
+        for (int index : seed) {
+            present[index] = true;
+        }
+        
+        for (int stop = 0; stop < numStops; stop++) {
+            if (present[stop]) {
+                continue;
+            }
+            
+            // Cheapest insertion, never ahead of the depot
+            int bestPosition = seed.size();
+            double bestCost = distance(distanceMatrix, seed.get(seed.size() - 1), stop);
+            for (int position = 1; position < seed.size(); position++) {
+                int previous = seed.get(position - 1);
+                int next = seed.get(position);
+                double cost = distance(distanceMatrix, previous, stop)
+                    + distance(distanceMatrix, stop, next)
+                    - distance(distanceMatrix, previous, next);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestPosition = position;
+                }
+            }
+            seed.add(bestPosition, stop);
+        }
+    }
+    
+    private double distance(Map<String, Map<String, Double>> distanceMatrix, int from, int to) {
+        Map<String, Double> fromMap = distanceMatrix.get(String.valueOf(from));
+        Double distance = fromMap != null ? fromMap.get(String.valueOf(to)) : null;
+        return distance != null ? distance : 0.0;
+    }
+    
+    private String stopKey(Address address) {
+        String postcode = address.getPostcode() != null ? address.getPostcode().replace(" ", "").toUpperCase() : "";
+        String line1 = address.getLine1() != null ? address.getLine1().trim().toLowerCase() : "";
+        return postcode + "|" + line1;
+    }
+}
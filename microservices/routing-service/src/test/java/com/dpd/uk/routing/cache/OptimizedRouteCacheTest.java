@@ -0,0 +1,88 @@
+package com.dpd.uk.routing.cache;
+
+import com.dpd.uk.routing.model.RouteOptimizationResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OptimizedRouteCacheTest {
+    
+    private static final String KEY = "digest";
+    
+    private final AtomicInteger solves = new AtomicInteger();
+    private OptimizedRouteCache cache;
+    
+    @BeforeEach
+    void setUp() {
+        cache = new OptimizedRouteCache();
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 30L);
+        ReflectionTestUtils.setField(cache, "maxEntries", 10);
+    }
+    
+    @Test
+    void joinersWaitUntilTheResultIsPersisted() throws Exception {
+        OptimizedRouteCache.Lookup leader = cache.getOrCompute(KEY, solver());
+        OptimizedRouteCache.Lookup joiner = cache.getOrCompute(KEY, solver());
+        CompletableFuture<RouteOptimizationResult> joined = CompletableFuture.supplyAsync(joiner::result);
+        
+        assertThat(leader.computed()).isTrue();
+        assertThat(joiner.computed()).isFalse();
+        Thread.sleep(50);
+        assertThat(joined).isNotDone();
+        
+        cache.complete(KEY, leader);
+        
+        assertThat(joined.get(1, TimeUnit.SECONDS)).isSameAs(leader.result());
+        assertThat(solves).hasValue(1);
+    }
+    
+    @Test
+    void completedResultsAreServedFromTheCache() {
+        OptimizedRouteCache.Lookup leader = cache.getOrCompute(KEY, solver());
+        cache.complete(KEY, leader);
+        
+        OptimizedRouteCache.Lookup cached = cache.getOrCompute(KEY, solver());
+        
+        assertThat(cached.computed()).isFalse();
+        assertThat(cached.result()).isSameAs(leader.result());
+        assertThat(solves).hasValue(1);
+    }
+    
+    @Test
+    void joinersFailAndTheKeyIsSolvedAgainWhenPersistingFails() {
+        OptimizedRouteCache.Lookup leader = cache.getOrCompute(KEY, solver());
+        OptimizedRouteCache.Lookup joiner = cache.getOrCompute(KEY, solver());
+        
+        cache.fail(KEY, leader, new IllegalStateException("insert failed"));
+        
+        assertThatThrownBy(joiner::result).isInstanceOf(IllegalStateException.class).hasMessage("insert failed");
+        assertThat(cache.getOrCompute(KEY, solver()).computed()).isTrue();
+        assertThat(solves).hasValue(2);
+    }
+    
+    @Test
+    void solverFailuresAreNotCachedOrLeftInFlight() {
+        assertThatThrownBy(() -> cache.getOrCompute(KEY, () -> {
+            throw new IllegalStateException("no matrix");
+        })).isInstanceOf(IllegalStateException.class);
+        
+        assertThat(cache.getOrCompute(KEY, solver()).computed()).isTrue();
+    }
+    
+    private Supplier<RouteOptimizationResult> solver() {
+        return () -> RouteOptimizationResult.builder()
+            .optimizedSequence(List.of(0, 1))
+            .algorithm("GREEDY")
+            .iterations(solves.incrementAndGet())
+            .build();
+    }
+}
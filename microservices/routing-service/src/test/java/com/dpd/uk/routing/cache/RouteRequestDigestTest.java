@@ -0,0 +1,87 @@
+package com.dpd.uk.routing.cache;
+
+import com.dpd.uk.common.model.Address;
+import com.dpd.uk.routing.model.RouteOptimizationRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteRequestDigestTest {
+    
+    @Test
+    void identicalRequestsShareADigest() {
+        assertThat(RouteRequestDigest.of(request()))
+            .isEqualTo(RouteRequestDigest.of(request()))
+            .hasSize(64);
+    }
+    
+    @Test
+    void ignoresAlgorithmCaseAndPostcodeFormatting() {
+        RouteOptimizationRequest reformatted = request();
+        reformatted.setAlgorithm("genetic_algorithm");
+        reformatted.setStops(List.of(stop("sw1a 1aa", 51.501009, -0.141588), stop("EC1A1BB", 51.520180, -0.097980)));
+        
+        assertThat(RouteRequestDigest.of(reformatted)).isEqualTo(RouteRequestDigest.of(request()));
+    }
+    
+    @Test
+    void ignoresMapInsertionOrder() {
+        RouteOptimizationRequest first = request();
+        Map<String, Object> constraints = new LinkedHashMap<>();
+        constraints.put("avoidTolls", true);
+        constraints.put("maxWeight", 500);
+        first.setConstraints(constraints);
+        
+        RouteOptimizationRequest second = request();
+        Map<String, Object> reversed = new LinkedHashMap<>();
+        reversed.put("maxWeight", 500);
+        reversed.put("avoidTolls", true);
+        second.setConstraints(reversed);
+        
+        assertThat(RouteRequestDigest.of(first)).isEqualTo(RouteRequestDigest.of(second));
+    }
+    
+    @Test
+    void changesWithStopOrderAndParameters() {
+        String digest = RouteRequestDigest.of(request());
+        
+        RouteOptimizationRequest reordered = request();
+        reordered.setStops(List.of(reordered.getStops().get(1), reordered.getStops().get(0)));
+        
+        RouteOptimizationRequest tuned = request();
+        tuned.setMaxIterations(500);
+        
+        RouteOptimizationRequest seeded = request();
+        seeded.setInitialSequence(List.of(1, 0));
+        
+        assertThat(RouteRequestDigest.of(reordered)).isNotEqualTo(digest);
+        assertThat(RouteRequestDigest.of(tuned)).isNotEqualTo(digest);
+        assertThat(RouteRequestDigest.of(seeded)).isNotEqualTo(digest);
+    }
+    
+    private static RouteOptimizationRequest request() {
+        return RouteOptimizationRequest.builder()
+            .depotId("LONDON_DEPOT")
+            .driverId("DRIVER_1")
+            .vehicleId("VEHICLE_1")
+            .algorithm("GENETIC_ALGORITHM")
+            .stops(List.of(stop("SW1A 1AA", 51.501009, -0.141588), stop("EC1A 1BB", 51.520180, -0.097980)))
+            .maxDurationHours(8)
+            .build();
+    }
+    
+    private static Address stop(String postcode, double latitude, double longitude) {
+        return Address.builder()
+            .line1("1 High Street")
+            .city("London")
+            .postcode(postcode)
+            .country("GB")
+            .latitude(latitude)
+            .longitude(longitude)
+            .build();
+    }
+}
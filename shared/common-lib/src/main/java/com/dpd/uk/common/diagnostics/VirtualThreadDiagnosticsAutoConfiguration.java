@@ -0,0 +1,29 @@
+package com.dpd.uk.common.diagnostics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Registers the pinning monitor in services running on virtual threads ({@code spring.threads.virtual.enabled}).
+ */
+@AutoConfiguration
+@ConditionalOnThreading(Threading.VIRTUAL)
+@EnableConfigurationProperties(VirtualThreadDiagnosticsProperties.class)
+public class VirtualThreadDiagnosticsAutoConfiguration {
+    
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "diagnostics.virtual-threads", name = "pinning-monitor", matchIfMissing = true)
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(VirtualThreadDiagnosticsProperties properties,
+                                                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        return new VirtualThreadPinningMonitor(properties, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
@@ -0,0 +1,22 @@
+package com.dpd.uk.common.diagnostics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for virtual-thread diagnostics, e.g. {@code diagnostics.virtual-threads.pinned-threshold}.
+ */
+@Data
+@ConfigurationProperties(prefix = "diagnostics.virtual-threads")
+public class VirtualThreadDiagnosticsProperties {
+    
+    private boolean pinningMonitor = true;
+    
+    // Pins shorter than this are not recorded by JFR at all
+    private Duration pinnedThreshold = Duration.ofMillis(20);
+    
+    // Pinning sites are reported as the first frame in this package, falling back to the top frame
+    private String applicationPackage = "com.dpd.";
+}
@@ -0,0 +1,111 @@
+package com.dpd.uk.common.diagnostics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams JFR {@code jdk.VirtualThreadPinned} events in-process. Each pin longer than the threshold is
+ * timed under {@code jvm.threads.virtual.pinned} tagged with the application frame that held the carrier,
+ * and every new site is logged once with its stack so the {@code synchronized} block or native call
+ * behind it can be found.
+ */
+@Slf4j
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+    
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_SITES = 100; // bounds the metric's tag cardinality
+    private static final String OTHER_SITE = "other";
+    
+    private final VirtualThreadDiagnosticsProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Set<String> sites = ConcurrentHashMap.newKeySet();
+    
+    private volatile RecordingStream stream;
+    
+    public VirtualThreadPinningMonitor(VirtualThreadDiagnosticsProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    @Override
+    public void start() {
+        try {
+            RecordingStream recording = new RecordingStream();
+            recording.enable(EVENT).withThreshold(properties.getPinnedThreshold()).withStackTrace();
+            recording.onEvent(EVENT, this::record);
+            recording.startAsync();
+            stream = recording;
+            log.info("Monitoring virtual thread pinning over {}", properties.getPinnedThreshold());
+        } catch (Exception e) {
+            // JFR can be unavailable (e.g. disabled in the runtime image); the service runs fine without it
+            log.warn("Virtual thread pinning monitor not started", e);
+        }
+    }
+    
+    @Override
+    public void stop() {
+        RecordingStream recording = stream;
+        stream = null;
+        if (recording != null) {
+            recording.close();
+        }
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+    
+    private void record(RecordedEvent event) {
+        String site = site(event.getStackTrace());
+        boolean firstSeen = sites.size() < MAX_SITES && sites.add(site);
+        String tag = sites.contains(site) ? site : OTHER_SITE;
+        
+        Timer.builder("jvm.threads.virtual.pinned")
+            .description("Time virtual threads spent pinned to their carrier")
+            .tag("site", tag)
+            .register(meterRegistry)
+            .record(event.getDuration());
+        
+        if (firstSeen) {
+            log.warn("Virtual thread pinned for {} ms at {}{}", event.getDuration().toMillis(), site,
+                stackOf(event.getStackTrace()));
+        }
+    }
+    
+    private String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(properties.getApplicationPackage())) {
+                return describe(frame);
+            }
+        }
+        return describe(stackTrace.getFrames().get(0));
+    }
+    
+    private String stackOf(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "";
+        }
+        StringBuilder stack = new StringBuilder();
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            stack.append(System.lineSeparator()).append("\tat ").append(describe(frame));
+        }
+        return stack.toString();
+    }
+    
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -23,6 +23,13 @@ public class ETA {
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime estimatedArrival;
     
+    // Arrival window from observed actual-vs-predicted durations on the lane
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime estimatedArrivalP50;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime estimatedArrivalP90;
+    
     @NotNull
     private ETAConfidence confidence;
     
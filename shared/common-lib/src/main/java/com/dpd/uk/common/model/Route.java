@@ -50,9 +50,15 @@ public class Route {
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime actualEndTime;
     
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime lastUpdated;
+    
     private String optimizationAlgorithm;
     private Map<String, Object> metadata;
     
+    // Incremented on every change; carried on route delta events
+    private Long version;
+    
     public enum RouteStatus {
         PLANNED,
         IN_PROGRESS,
@@ -0,0 +1,50 @@
+package com.dpd.uk.common.outbound;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Latencies of the most recent calls, with the p95 recomputed every few samples.
+ */
+class LatencyWindow {
+    
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECOMPUTE_EVERY = 32;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long[] samples;
+    private int next;
+    private int count;
+    private int sinceRecompute;
+    
+    private volatile long p95Millis = -1;
+    
+    LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+    
+    void record(long millis) {
+        lock.lock();
+        try {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            sinceRecompute++;
+            if (count >= MIN_SAMPLES && (p95Millis < 0 || sinceRecompute >= RECOMPUTE_EVERY)) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                p95Millis = sorted[(int) Math.ceil(count * 0.95) - 1];
+                sinceRecompute = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Observed p95 in milliseconds, or -1 until enough calls have completed.
+     */
+    long p95Millis() {
+        return p95Millis;
+    }
+}
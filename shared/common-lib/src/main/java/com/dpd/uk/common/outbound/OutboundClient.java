@@ -0,0 +1,111 @@
+package com.dpd.uk.common.outbound;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Pre-built client for one external provider. Every call is bounded by the provider's latency budget,
+ * hedged once it runs past the observed p95, and limited by a bulkhead; anything that does not produce
+ * a response in time returns the caller's fallback instead of an error.
+ */
+@Slf4j
+public class OutboundClient {
+    
+    private static final int LATENCY_WINDOW = 256;
+    
+    private final String name;
+    private final WebClient webClient;
+    private final OutboundClientProperties.Provider provider;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore bulkhead;
+    private final LatencyWindow latencies = new LatencyWindow(LATENCY_WINDOW);
+    
+    OutboundClient(String name, WebClient webClient, OutboundClientProperties.Provider provider, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.webClient = webClient;
+        this.provider = provider;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(provider.getMaxConcurrent());
+    }
+    
+    /**
+     * Blocking GET against the provider's base URL. Must not be called from an event-loop thread.
+     */
+    public <T> T get(Function<UriBuilder, URI> uri, Class<T> responseType, Supplier<T> fallback) {
+        if (!bulkhead.tryAcquire()) {
+            count("rejected");
+            return fallback.get();
+        }
+        
+        try {
+            T response = hedged(() -> exchange(uri, responseType))
+                .timeout(provider.getBudget())
+                .onErrorResume(e -> {
+                    log.debug("Outbound call to {} failed: {}", name, e.toString());
+                    return Mono.empty();
+                })
+                .block();
+            
+            if (response == null) {
+                count("fallback");
+                return fallback.get();
+            }
+            count("success");
+            return response;
+        } finally {
+            bulkhead.release();
+        }
+    }
+    
+    private <T> Mono<T> hedged(Supplier<Mono<T>> call) {
+        Mono<T> primary = call.get();
+        long p95 = latencies.p95Millis();
+        long delay = Math.max(p95, provider.getMinHedgeDelay().toMillis());
+        if (!provider.isHedge() || p95 < 0 || delay >= provider.getBudget().toMillis()) {
+            return primary;
+        }
+        
+        Mono<T> hedge = Mono.delay(Duration.ofMillis(delay))
+            .then(Mono.defer(() -> {
+                // The hedge needs its own permit so a slow provider can't double its load
+                if (!bulkhead.tryAcquire()) {
+                    return Mono.<T>empty();
+                }
+                count("hedged");
+                return call.get().doFinally(signal -> bulkhead.release());
+            }));
+        
+        // Whichever answers first wins; the other is cancelled
+        return Mono.firstWithValue(primary, hedge);
+    }
+    
+    private <T> Mono<T> exchange(Function<UriBuilder, URI> uri, Class<T> responseType) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return webClient.get()
+                .uri(uri)
+                .retrieve()
+                .bodyToMono(responseType)
+                .doOnSuccess(response -> latencies.record((System.nanoTime() - start) / 1_000_000))
+                .doOnError(e -> latencies.record((System.nanoTime() - start) / 1_000_000));
+        });
+    }
+    
+    private void count(String outcome) {
+        Counter.builder("outbound.calls")
+            .description("Outbound provider calls by outcome")
+            .tags("provider", name, "outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+}
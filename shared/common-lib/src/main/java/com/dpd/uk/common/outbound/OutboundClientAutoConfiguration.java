@@ -0,0 +1,30 @@
+package com.dpd.uk.common.outbound;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Registers the outbound client layer in services that have WebFlux on the classpath.
+ */
+@AutoConfiguration
+@ConditionalOnClass(WebClient.class)
+@EnableConfigurationProperties(OutboundClientProperties.class)
+public class OutboundClientAutoConfiguration {
+    
+    @Bean
+    @ConditionalOnMissingBean
+    public OutboundClientRegistry outboundClientRegistry(OutboundClientProperties properties,
+                                                         ObjectProvider<WebClient.Builder> webClientBuilder,
+                                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        return new OutboundClientRegistry(properties,
+            webClientBuilder.getIfAvailable(WebClient::builder),
+            meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
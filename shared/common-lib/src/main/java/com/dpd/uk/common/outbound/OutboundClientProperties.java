@@ -0,0 +1,39 @@
+package com.dpd.uk.common.outbound;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-provider settings for outbound HTTP calls, e.g. {@code outbound.providers.traffic.base-url}.
+ */
+@Data
+@ConfigurationProperties(prefix = "outbound")
+public class OutboundClientProperties {
+    
+    private Map<String, Provider> providers = new HashMap<>();
+    
+    @Data
+    public static class Provider {
+        
+        private String baseUrl;
+        
+        // Total time a caller waits, hedge included, before taking the fallback
+        private Duration budget = Duration.ofMillis(800);
+        
+        private Duration connectTimeout = Duration.ofMillis(250);
+        
+        private int maxConnections = 64;
+        
+        // Bulkhead: calls beyond this go straight to the fallback
+        private int maxConcurrent = 32;
+        
+        // Send a second request once the first has been outstanding longer than the observed p95
+        private boolean hedge = true;
+        
+        private Duration minHedgeDelay = Duration.ofMillis(20);
+    }
+}
@@ -0,0 +1,64 @@
+package com.dpd.uk.common.outbound;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds one pooled client per configured provider at startup.
+ */
+@Slf4j
+public class OutboundClientRegistry implements DisposableBean {
+    
+    private final Map<String, OutboundClient> clients = new HashMap<>();
+    private final List<ConnectionProvider> connectionProviders = new ArrayList<>();
+    
+    public OutboundClientRegistry(OutboundClientProperties properties, WebClient.Builder webClientBuilder,
+                                  MeterRegistry meterRegistry) {
+        properties.getProviders().forEach((name, provider) -> {
+            ConnectionProvider connections = ConnectionProvider.builder("outbound-" + name)
+                .maxConnections(provider.getMaxConnections())
+                .pendingAcquireTimeout(provider.getBudget())
+                .maxIdleTime(Duration.ofSeconds(30))
+                .build();
+            connectionProviders.add(connections);
+            
+            HttpClient httpClient = HttpClient.create(connections)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) provider.getConnectTimeout().toMillis())
+                .responseTimeout(provider.getBudget());
+            
+            WebClient webClient = webClientBuilder.clone()
+                .baseUrl(provider.getBaseUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+            
+            clients.put(name, new OutboundClient(name, webClient, provider, meterRegistry));
+            log.info("Configured outbound provider {} at {} (budget {}ms)", name, provider.getBaseUrl(),
+                provider.getBudget().toMillis());
+        });
+    }
+    
+    public OutboundClient client(String name) {
+        OutboundClient client = clients.get(name);
+        if (client == null) {
+            throw new IllegalStateException("No outbound provider configured under outbound.providers." + name);
+        }
+        return client;
+    }
+    
+    @Override
+    public void destroy() {
+        connectionProviders.forEach(ConnectionProvider::dispose);
+    }
+}
@@ -0,0 +1,189 @@
+package com.dpd.uk.common.outbound;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboundClientTest {
+    
+    private static final String FALLBACK = "fallback";
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger requests = new AtomicInteger();
+    // Per-request response delays in milliseconds, taken in arrival order; requests beyond the queue answer at once
+    private final Queue<Long> delays = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ExecutorService handlers;
+    private HttpServer server;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        handlers = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/eta", this::respond);
+        server.setExecutor(handlers);
+        server.start();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+    
+    @Test
+    void callPastTheBudgetReturnsTheFallback() {
+        OutboundClient client = client(provider(Duration.ofMillis(200), 4, false));
+        delays.add(2000L);
+        
+        long start = System.nanoTime();
+        String response = call(client);
+        
+        assertThat(response).isEqualTo(FALLBACK);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1500));
+        assertThat(outcome("fallback")).isEqualTo(1);
+    }
+    
+    @Test
+    void hedgeFiresAfterTheP95AndTheFirstResponseWins() {
+        OutboundClient client = client(provider(Duration.ofSeconds(5), 4, true));
+        warmUp(client);
+        int primary = requests.get() + 1;
+        delays.add(3000L);
+        
+        long start = System.nanoTime();
+        String response = call(client);
+        
+        // The hedge is the next request the server sees, and answers long before the primary
+        assertThat(response).isEqualTo("response-" + (primary + 1));
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(2000));
+        assertThat(outcome("hedged")).isEqualTo(1);
+    }
+    
+    @Test
+    void bulkheadRejectsCallsBeyondMaxConcurrent() throws Exception {
+        OutboundClient client = client(provider(Duration.ofSeconds(5), 1, false));
+        delays.add(60_000L);
+        CompletableFuture<String> holding = CompletableFuture.supplyAsync(() -> call(client));
+        awaitRequests(1);
+        
+        assertThat(call(client)).isEqualTo(FALLBACK);
+        assertThat(outcome("rejected")).isEqualTo(1);
+        assertThat(requests).hasValue(1);
+        
+        release.countDown();
+        assertThat(holding.get(5, TimeUnit.SECONDS)).isEqualTo("response-1");
+    }
+    
+    @Test
+    void hedgeIsNotSentWithoutItsOwnPermit() {
+        OutboundClient client = client(provider(Duration.ofSeconds(5), 1, true));
+        warmUp(client);
+        int primary = requests.get() + 1;
+        delays.add(500L);
+        
+        String response = call(client);
+        
+        assertThat(response).isEqualTo("response-" + primary);
+        assertThat(requests).hasValue(primary);
+        assertThat(outcome("hedged")).isZero();
+    }
+    
+    @Test
+    void permitsAreReleasedWhenTheBudgetCancelsBothRequests() throws Exception {
+        OutboundClient client = client(provider(Duration.ofMillis(600), 2, true));
+        warmUp(client);
+        int primary = requests.get() + 1;
+        delays.add(60_000L);
+        delays.add(60_000L);
+        
+        assertThat(call(client)).isEqualTo(FALLBACK);
+        assertThat(requests).hasValue(primary + 1);
+        assertThat(outcome("hedged")).isEqualTo(1);
+        
+        Semaphore bulkhead = (Semaphore) ReflectionTestUtils.getField(client, "bulkhead");
+        assertThat(bulkhead.tryAcquire(2, 1, TimeUnit.SECONDS)).isTrue();
+    }
+    
+    private OutboundClient client(OutboundClientProperties.Provider provider) {
+        WebClient webClient = WebClient.builder().baseUrl(provider.getBaseUrl()).build();
+        return new OutboundClient("stub", webClient, provider, meterRegistry);
+    }
+    
+    private OutboundClientProperties.Provider provider(Duration budget, int maxConcurrent, boolean hedge) {
+        OutboundClientProperties.Provider provider = new OutboundClientProperties.Provider();
+        provider.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        provider.setBudget(budget);
+        provider.setMaxConcurrent(maxConcurrent);
+        provider.setHedge(hedge);
+        return provider;
+    }
+    
+    private String call(OutboundClient client) {
+        return client.get(uri -> uri.path("/eta").build(), String.class, () -> FALLBACK);
+    }
+    
+    private void warmUp(OutboundClient client) {
+        // Enough fast calls for the latency window to publish a p95
+        for (int i = 0; i < 20; i++) {
+            assertThat(call(client)).startsWith("response-");
+        }
+    }
+    
+    private void awaitRequests(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (requests.get() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(requests).hasValue(count);
+    }
+    
+    private double outcome(String outcome) {
+        Counter counter = meterRegistry.find("outbound.calls").tags("provider", "stub", "outcome", outcome).counter();
+        return counter != null ? counter.count() : 0;
+    }
+    
+    private void respond(HttpExchange exchange) throws IOException {
+        int request = requests.incrementAndGet();
+        Long delay = delays.poll();
+        try {
+            if (delay != null) {
+                release.await(delay, TimeUnit.MILLISECONDS);
+            }
+            byte[] body = ("response-" + request).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+}